@@ -12,6 +12,8 @@ import org.e2immu.language.inspection.api.resource.SourceFile;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,6 +57,14 @@ public interface JavaInspector {
         ParseOptions build();
     }
 
+    /**
+     * Every call returns a new import computer. It can be reused for many calls to <code>print2</code>,
+     * but it is not thread-safe: use one per thread when printing concurrently.
+     * The types per package that it needs are cached by the inspector, are shared between all import computers,
+     * and are safe to use concurrently; they are kept until the sources change.
+     *
+     * @param minStar the number of types of the same package from which a '*' import is used
+     */
     ImportComputer importComputer(int minStar);
 
     record InitializationProblem(String errorMsg, Throwable throwable) {
@@ -86,6 +96,29 @@ public interface JavaInspector {
 
     String print2(TypeInfo typeInfo, Qualification.Decorator decorator, ImportComputer importComputer);
 
+    record PrintSummary(int types, long bytes, long nanos) {
+        public double typesPerSecond() {
+            return nanos == 0 ? 0.0 : types * 1e9 / nanos;
+        }
+
+        public double bytesPerSecond() {
+            return nanos == 0 ? 0.0 : bytes * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * Print primary types, as <code>print2</code> does, to <code>outputRoot/package/directories/Type.java</code>
+     * in UTF-8, overwriting existing files.
+     *
+     * @param primaryTypes the types to print
+     * @param outputRoot   the root of the output source tree
+     * @param parallelism  the number of types printed concurrently, at least 1
+     * @return the number of types and bytes written, and the time it took
+     * @throws IOException              the first problem writing a file; the other types are still printed
+     * @throws IllegalArgumentException when the parallelism is not positive
+     */
+    PrintSummary print2(Collection<TypeInfo> primaryTypes, Path outputRoot, int parallelism) throws IOException;
+
     Runtime runtime();
 
     CompiledTypesManager compiledTypesManager();
@@ -38,6 +38,33 @@ public interface InputConfiguration {
      */
     Path alternativeJREDirectory();
 
+    /**
+     * this directory must be absolute, or relative to the operating system's current working directory.
+     * It is not prefixed by the <code>workingDirectory</code>.
+     *
+     * @return A path to a directory where persistent caches (such as the class path index) can be stored,
+     * or null when no caching should take place.
+     */
+    Path cacheDirectory();
+
+    /**
+     * When true, the class path parts and source sets are opened, fingerprinted and enumerated concurrently.
+     * The result is identical to the sequential initialization: in case of duplicates, the order of the parts
+     * is respected.
+     *
+     * @return whether initialization may use multiple threads
+     */
+    boolean parallelInitialization();
+
+    /**
+     * When true, the source directories are watched for changes from the moment of initialization, so that
+     * reloading the sources only has to look at the files that have been added, modified or deleted.
+     * This only applies when all source sets are directories on the file system.
+     *
+     * @return whether the source directories should be watched
+     */
+    boolean watchSources();
+
     interface Builder {
 
         @Fluent
@@ -85,6 +112,15 @@ public interface InputConfiguration {
         @Fluent
         Builder setSourceEncoding(String sourceEncoding);
 
+        @Fluent
+        Builder setCacheDirectory(String cacheDirectory);
+
+        @Fluent
+        Builder setParallelInitialization(boolean parallelInitialization);
+
+        @Fluent
+        Builder setWatchSources(boolean watchSources);
+
         InputConfiguration build();
     }
 
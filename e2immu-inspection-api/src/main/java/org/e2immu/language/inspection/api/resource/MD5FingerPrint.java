@@ -2,6 +2,8 @@ package org.e2immu.language.inspection.api.resource;
 
 import org.e2immu.language.cst.api.element.FingerPrint;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -12,6 +14,8 @@ public class MD5FingerPrint implements FingerPrint {
 
     public static final FingerPrint NO_FINGERPRINT = new MD5FingerPrint();
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final byte[] bytes;
 
     private MD5FingerPrint() {
@@ -38,6 +42,23 @@ public class MD5FingerPrint implements FingerPrint {
         }
     }
 
+    /**
+     * Streaming variant: the content is never held in memory as a whole.
+     */
+    public static FingerPrint compute(InputStream inputStream) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                md.update(buffer, 0, read);
+            }
+            return new MD5FingerPrint(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static FingerPrint compute(MessageDigest md, byte[] bytes) {
         md.reset();
         byte[] digest = md.digest(bytes);
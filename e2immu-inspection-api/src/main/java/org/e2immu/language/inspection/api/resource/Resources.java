@@ -7,8 +7,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 public interface Resources {
@@ -42,6 +45,27 @@ public interface Resources {
 
     void expandLeaves(String path, String extension, BiConsumer<String[], List<SourceFile>> visitor);
 
+    /**
+     * Direct lookup in the package index, which is built while the class path is assembled.
+     *
+     * @param packageName the package, e.g. <code>java.util</code>
+     * @param extension   the extension, including the dot, e.g. <code>.class</code>
+     * @return true when the package contains at least one primary type
+     */
+    boolean containsPackage(String packageName, String extension);
+
+    /**
+     * @return all packages that contain at least one primary type
+     */
+    Set<String> packages(String extension);
+
+    /**
+     * Direct lookup in the package index, which is built while the class path is assembled.
+     *
+     * @return the source files of the primary types in the package, with their path set, sorted by name
+     */
+    List<SourceFile> primaryTypesInPackage(String packageName, String extension);
+
     List<SourceFile> expandURLs(String extension);
 
     URL findJarInClassPath(String prefix) throws IOException;
@@ -52,7 +76,25 @@ public interface Resources {
 
     int addJmod(SourceFile jmodSourceFile) throws IOException;
 
+    int addJrt(SourceFile jrtSourceFile, Path alternativeJREDirectory) throws IOException;
+
     SourceFile fqnToPath(String fqn, String s);
 
     byte[] loadBytes(String path);
+
+    /**
+     * Variant of <code>loadBytes</code> which allows the implementation to avoid intermediate copies.
+     * The buffer is positioned at 0, its limit is the size of the resource.
+     */
+    default ByteBuffer loadByteBuffer(String path) {
+        byte[] bytes = loadBytes(path);
+        return bytes == null ? null : ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Release file handles that may have been kept open to speed up <code>loadBytes</code>.
+     */
+    default void close() {
+        // nothing to be done
+    }
 }
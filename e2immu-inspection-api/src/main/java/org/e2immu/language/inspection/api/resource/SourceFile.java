@@ -6,7 +6,17 @@ import org.e2immu.language.cst.api.element.SourceSet;
 import java.net.URI;
 import java.util.Objects;
 
-public record SourceFile(String path, URI uri, SourceSet sourceSet, FingerPrint fingerPrint) {
+/**
+ * @param size         size of the file in bytes, as seen when the file was scanned; -1 when unknown
+ * @param lastModified modification time of the file in milliseconds, as seen when the file was scanned;
+ *                     -1 when unknown. Together with the size, this allows for cheap change detection.
+ */
+public record SourceFile(String path, URI uri, SourceSet sourceSet, FingerPrint fingerPrint,
+                         long size, long lastModified) {
+
+    public SourceFile(String path, URI uri, SourceSet sourceSet, FingerPrint fingerPrint) {
+        this(path, uri, sourceSet, fingerPrint, -1L, -1L);
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -31,14 +41,14 @@ public record SourceFile(String path, URI uri, SourceSet sourceSet, FingerPrint
     }
 
     public SourceFile withFingerprint(FingerPrint fingerPrint) {
-        return new SourceFile(path, uri, sourceSet, fingerPrint);
+        return new SourceFile(path, uri, sourceSet, fingerPrint, size, lastModified);
     }
 
     public SourceFile withPath(String path) {
-        return new SourceFile(path, uri, sourceSet, fingerPrint);
+        return new SourceFile(path, uri, sourceSet, fingerPrint, size, lastModified);
     }
 
     public SourceFile withURI(URI uri) {
-        return new SourceFile(path, uri, sourceSet, fingerPrint);
+        return new SourceFile(path, uri, sourceSet, fingerPrint, size, lastModified);
     }
 }
@@ -18,8 +18,15 @@ import org.e2immu.language.inspection.api.parser.Resolver;
 import org.e2immu.language.inspection.api.parser.Summary;
 import org.e2immu.language.inspection.api.resource.*;
 import org.e2immu.language.inspection.impl.parser.*;
+import org.e2immu.language.inspection.resource.BackgroundPreloader;
+import org.e2immu.language.inspection.resource.ClassPathIndex;
 import org.e2immu.language.inspection.resource.CompiledTypesManagerImpl;
+import org.e2immu.language.inspection.resource.JarFingerPrints;
+import org.e2immu.language.inspection.resource.LayeredResources;
+import org.e2immu.language.inspection.resource.PreloadList;
 import org.e2immu.language.inspection.resource.ResourcesImpl;
+import org.e2immu.language.inspection.resource.SourceChangeTracker;
+import org.e2immu.language.inspection.resource.SourceDirectoryScanner;
 import org.e2immu.language.inspection.resource.SourceSetImpl;
 import org.e2immu.parser.java.*;
 import org.e2immu.support.Either;
@@ -32,9 +39,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -42,13 +53,18 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -62,24 +78,57 @@ then, do a 1st round of parsing the source types -> map fqn->type/subType + list
 
 finally, do the actual parsing for all primary types
  */
-public class JavaInspectorImpl implements JavaInspector {
+public class JavaInspectorImpl implements JavaInspector, AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JavaInspectorImpl.class);
     private static final TimedLogger TIMED_LOGGER = new TimedLogger(LOGGER, 1000L);
 
     private Runtime runtime;
     private Map<SourceFile, List<TypeInfo>> sourceFiles;
+    // the source files as last seen on the file system: size and modification time allow for cheap change detection
+    private final Map<SourceFile, SourceFile> lastSeenSourceFiles = new HashMap<>();
     private final SourceTypeMapImpl sourceTypeMap = new SourceTypeMapImpl();
     private CompiledTypesManager compiledTypesManager;
     private final boolean computeFingerPrints;
     private final boolean allowCreationOfStubTypes;
+    private final JarFingerPrints.Mode jarFingerPrintMode;
+    private JarFingerPrints jarFingerPrints;
+    private SourceChangeTracker sourceChangeTracker;
+    // the input configuration whose source directories are being watched
+    private InputConfiguration watchedInputConfiguration;
+    private List<SourceRoot> sourceRoots;
+    private Path preloadList;
+    private JavaInspectorImpl sharedLibraries;
+    private List<SourceSet> classPathParts = List.of();
+    /*
+    used by the import computers when printing: the primary types per package, source types first.
+    Cleared whenever the source types change, i.e., when parsing or reloading.
+     */
+    private final Map<String, List<TypeInfo>> typesInPackageCache = new ConcurrentHashMap<>();
+    /*
+    The names of the primary types of the source files, derived from their path. They are known before the
+    sources are scanned, so that the background preloader never loads a class path copy of a source type.
+    Names of deleted source files are not removed: that only prevents them from being preloaded.
+     */
+    private final Set<String> sourcePrimaryTypeNames = ConcurrentHashMap.newKeySet();
 
     public JavaInspectorImpl() {
         this(false, false);
     }
 
     public JavaInspectorImpl(boolean computeFingerPrints, boolean allowCreationOfStubTypes) {
+        this(computeFingerPrints, allowCreationOfStubTypes, JarFingerPrints.Mode.CONTENT);
+    }
+
+    /**
+     * @param jarFingerPrintMode CENTRAL_DIRECTORY is much cheaper than CONTENT, but results in different
+     *                           fingerprints for the same jar. Only relevant when <code>computeFingerPrints</code>.
+     */
+    public JavaInspectorImpl(boolean computeFingerPrints,
+                             boolean allowCreationOfStubTypes,
+                             JarFingerPrints.Mode jarFingerPrintMode) {
         this.computeFingerPrints = computeFingerPrints;
         this.allowCreationOfStubTypes = allowCreationOfStubTypes;
+        this.jarFingerPrintMode = jarFingerPrintMode;
     }
 
     /**
@@ -97,6 +146,13 @@ public class JavaInspectorImpl implements JavaInspector {
     public static final String E2IMMU_SUPPORT = JAR_WITH_PATH_PREFIX + "org/e2immu/annotation";
 
     public static final String TEST_PROTOCOL_PREFIX = TEST_PROTOCOL + ":";
+    // subdirectory of InputConfiguration.cacheDirectory()
+    public static final String CLASS_PATH_INDEX_DIRECTORY = "classPathIndex";
+    // the import computer of the print2 methods uses a '*' import from this many types of the same package
+    public static final int DEFAULT_MIN_STAR = 4;
+    // the source change tracker must have seen no events for this long before the changes are reloaded
+    public static final Duration WATCH_QUIET_PERIOD = Duration.ofMillis(200);
+    public static final Duration WATCH_MAX_WAIT = Duration.ofSeconds(5);
     public static final ParseOptions FAIL_FAST = new ParseOptions(true, false,
             _ -> UNCHANGED, false);
     public static final ParseOptions DETAILED_SOURCES = new ParseOptionsBuilder().setDetailedSources(true).build();
@@ -142,10 +198,35 @@ public class JavaInspectorImpl implements JavaInspector {
         List<InitializationProblem> initializationProblems = new LinkedList<>();
         try {
 
+            jarFingerPrints = new JarFingerPrints(inputConfiguration.cacheDirectory(), jarFingerPrintMode);
+            this.classPathParts = inputConfiguration.classPathParts();
+            List<SourceSet> ownClassPathParts = sharedLibraries == null ? classPathParts
+                    : sharedLibraries.withoutSharedParts(classPathParts);
             Resources classPath = assembleClassPath(inputConfiguration.workingDirectory(),
-                    inputConfiguration.classPathParts(), inputConfiguration.alternativeJREDirectory(),
+                    ownClassPathParts, inputConfiguration.alternativeJREDirectory(),
+                    inputConfiguration.cacheDirectory(), inputConfiguration.parallelInitialization(),
                     initializationProblems);
-            CompiledTypesManagerImpl ctm = new CompiledTypesManagerImpl(classPath);
+            CompiledTypesManagerImpl ctm = null;
+            if (sharedLibraries != null) {
+                // the shared parts come first, as they typically contain the JDK; they are not copied
+                LayeredResources layered = new LayeredResources(sharedLibraries.compiledTypesManager.classPath(),
+                        classPath);
+                SourceFile shadowing = layered.firstShadowingType();
+                if (shadowing == null) {
+                    ctm = new CompiledTypesManagerImpl(layered, sharedLibraries.compiledTypesManager);
+                } else {
+                    initializationProblems.add(new InitializationProblem("Not sharing libraries: "
+                            + shadowing.uri() + " shadows a type of the shared libraries", null));
+                    classPath.close();
+                    classPath = assembleClassPath(inputConfiguration.workingDirectory(), classPathParts,
+                            inputConfiguration.alternativeJREDirectory(), inputConfiguration.cacheDirectory(),
+                            inputConfiguration.parallelInitialization(), initializationProblems);
+                }
+            }
+            if (ctm == null) {
+                ctm = new CompiledTypesManagerImpl(classPath);
+            }
+            jarFingerPrints.write();
             runtime = new RuntimeWithCompiledTypesManager(ctm);
             ByteCodeInspector byteCodeInspector = new ByteCodeInspectorImpl(runtime, ctm, computeFingerPrints,
                     allowCreationOfStubTypes);
@@ -155,12 +236,23 @@ public class JavaInspectorImpl implements JavaInspector {
             for (String packageName : new String[]{"java.lang", "java.util.function"}) {
                 preload(packageName);
             }
+            if (preloadList != null) {
+                ctm.preloadTypes(PreloadList.read(preloadList));
+            }
 
+            // start watching before scanning, so that no change goes unnoticed
+            startWatchingSources(inputConfiguration);
             Resources sourcePath = assembleSourcePath(inputConfiguration.workingDirectory(),
-                    inputConfiguration.sourceSets(), initializationProblems);
+                    inputConfiguration.sourceSets(), inputConfiguration.parallelInitialization(),
+                    initializationProblems);
+            sourcePrimaryTypeNames.clear();
             List<SourceFile> sourceFiles = computeSourceURIs(sourcePath);
             this.sourceFiles = new HashMap<>();
-            sourceFiles.forEach(sf -> this.sourceFiles.put(sf, List.of()));
+            this.lastSeenSourceFiles.clear();
+            sourceFiles.forEach(sf -> {
+                this.sourceFiles.put(sf, List.of());
+                this.lastSeenSourceFiles.put(sf, sf);
+            });
         } catch (URISyntaxException e) {
             LOGGER.error("Caught URISyntaxException, transforming into IOException", e);
             throw new IOException(e);
@@ -168,6 +260,51 @@ public class JavaInspectorImpl implements JavaInspector {
         return List.copyOf(initializationProblems);
     }
 
+    /**
+     * Share the library types of another, initialized, inspector, typically one whose class path consists of
+     * the JDK modules and some common jars. Class path parts of this inspector that are also present in the
+     * shared inspector, with the same URI, are not read again; their types are loaded by, and held in,
+     * the shared inspector only. Many inspectors can share the same one, concurrently.
+     * Must be called before <code>initialize</code>.
+     * <p>
+     * The class path of the shared inspector must be self-contained: its types cannot refer to types
+     * on other class path parts. The other class path parts of this inspector must not contain types of
+     * the shared inspector, e.g., a copy of a shared jar at another location, or a jar that shadows some of
+     * its classes. When they do, <code>initialize</code> reports a problem, and does not share.
+     *
+     * @param sharedLibraries an initialized inspector that will not be used to parse sources
+     */
+    public void setSharedLibraries(JavaInspectorImpl sharedLibraries) {
+        assert sharedLibraries.compiledTypesManager != null : "The shared inspector must be initialized";
+        this.sharedLibraries = sharedLibraries;
+    }
+
+    private List<SourceSet> withoutSharedParts(List<SourceSet> parts) {
+        Set<URI> shared = classPathParts.stream().map(SourceSet::uri).collect(Collectors.toUnmodifiableSet());
+        return parts.stream().filter(part -> !shared.contains(part.uri())).toList();
+    }
+
+    /**
+     * When set, <code>initialize</code> loads the library types in this file, if it exists, in parallel.
+     * Must be called before <code>initialize</code>. Use <code>writePreloadList</code> at the end of a run
+     * to record the library types that were needed.
+     *
+     * @param preloadList a file, typically in the cache directory of the project
+     */
+    public void setPreloadList(Path preloadList) {
+        this.preloadList = preloadList;
+    }
+
+    /**
+     * Record all library types that have been inspected so far, including the ones loaded from the preload list,
+     * in the file set by <code>setPreloadList</code>.
+     */
+    public void writePreloadList() {
+        if (preloadList != null) {
+            PreloadList.write(preloadList, ((CompiledTypesManagerImpl) compiledTypesManager).inspectedPrimaryTypes());
+        }
+    }
+
     /*
     Strategy:
     Load all sourceFiles from the source path.
@@ -178,50 +315,49 @@ public class JavaInspectorImpl implements JavaInspector {
         INVALID for this type, and that the dependents can be computed so that they are rewired.
 
     The code that computes the Rewired types will have to make use of a type dependency graph.
+
+    When the source directories are being watched, only the files that the watcher reported are looked at,
+    after waiting for the watcher to become quiet. Watching requires all sources to be on the file system, so
+    test protocol sources are rejected. When the input configuration differs from the one being watched,
+    all sources are reloaded, and the directories of the new configuration are watched from then on.
      */
     public ReloadResult reloadSources(InputConfiguration inputConfiguration,
                                       Map<String, String> sourcesByTestProtocolURIString) throws IOException {
         if (!computeFingerPrints) {
             throw new UnsupportedOperationException("The reloadSources method requires fingerprints to be computed");
         }
-        List<InitializationProblem> initializationProblems = new LinkedList<>();
+        if (sourceChangeTracker != null && !sourcesByTestProtocolURIString.isEmpty()) {
+            throw new IllegalArgumentException("Cannot reload test protocol sources while watching source directories");
+        }
+        List<InitializationProblem> initializationProblems = Collections.synchronizedList(new LinkedList<>());
         Set<TypeInfo> changed = new HashSet<>();
+        typesInPackageCache.clear();
+        if (sourceChangeTracker != null && !inputConfiguration.equals(watchedInputConfiguration)) {
+            LOGGER.info("The input configuration has changed, reloading all sources");
+            // start watching the new configuration before scanning, so that no change goes unnoticed
+            startWatchingSources(inputConfiguration);
+        } else if (sourceChangeTracker != null) {
+            SourceChangeTracker.Changes changes = sourceChangeTracker.drain(WATCH_QUIET_PERIOD, WATCH_MAX_WAIT);
+            if (!changes.overflow()) {
+                reloadChangedSources(changes.paths(), initializationProblems, changed);
+                return new ReloadResult(List.copyOf(initializationProblems), Set.copyOf(changed));
+            }
+            LOGGER.info("Changes in the source directories may have been lost, reloading all sources");
+        }
         try {
             Resources sourcePath = assembleSourcePath(inputConfiguration.workingDirectory(),
-                    inputConfiguration.sourceSets(), initializationProblems);
+                    inputConfiguration.sourceSets(), inputConfiguration.parallelInitialization(),
+                    initializationProblems);
             Set<SourceFile> removed = new HashSet<>(this.sourceFiles.keySet());
             List<SourceFile> sourceFiles = computeSourceURIs(sourcePath);
-            AtomicInteger sourceFilesChanged = new AtomicInteger();
-            AtomicInteger newSourceFiles = new AtomicInteger();
-            sourceFiles.forEach(sf -> {
-                List<TypeInfo> current = this.sourceFiles.get(sf);
-                if (current != null) {
-                    removed.remove(sf);
-                    if (!current.isEmpty()) {
-                        TypeInfo typeInfo = current.getFirst();
-                        FingerPrint currentFingerprint = typeInfo.compilationUnit().fingerPrintOrNull();
-                        String sourceCode = loadSource(sf, sourcesByTestProtocolURIString,
-                                sf.sourceSet().sourceEncoding(),
-                                e -> initializationProblems.add(new InitializationProblem("parsing", e)));
-                        FingerPrint newFingerprint = sourceCode == null ? MD5FingerPrint.NO_FINGERPRINT : MD5FingerPrint.compute(sourceCode);
-                        assert currentFingerprint != null && currentFingerprint != MD5FingerPrint.NO_FINGERPRINT;
-                        if (!currentFingerprint.equals(newFingerprint)) {
-                            // CHANGE
-                            this.sourceFiles.put(sf, List.of());
-                            changed.addAll(current);
-                            sourceFilesChanged.incrementAndGet();
-                        } // else: UNCHANGED
-                    }
-                } else {
-                    // NEW
-                    this.sourceFiles.put(sf, List.of());
-                    newSourceFiles.incrementAndGet();
-                }
-            });
+            sourceFiles.forEach(removed::remove);
+            ReloadCounts counts = reloadSourceFiles(sourceFiles, sourcesByTestProtocolURIString,
+                    initializationProblems, changed);
             // those that remain in "removed" are not present anymore, they should go.
-            LOGGER.info("Reloaded sources: {} source file(s) removed, {} new, {} of {} remaining changed",
-                    removed.size(), newSourceFiles.get(), sourceFilesChanged.get(), sourceFiles.size());
+            LOGGER.info("Reloaded sources: {} source file(s) removed, {} new, {} of {} remaining changed, {} read",
+                    removed.size(), counts.newSourceFiles, counts.changed, sourceFiles.size(), counts.read);
             this.sourceFiles.keySet().removeAll(removed);
+            this.lastSeenSourceFiles.keySet().removeAll(removed);
         } catch (URISyntaxException e) {
             LOGGER.error("Caught URISyntaxException, transforming into IOException", e);
             throw new IOException(e);
@@ -229,6 +365,176 @@ public class JavaInspectorImpl implements JavaInspector {
         return new ReloadResult(List.copyOf(initializationProblems), Set.copyOf(changed));
     }
 
+    private enum ReloadStatus {NEW, CHANGED, UNCHANGED, UNCHANGED_AFTER_READING}
+
+    private record Reloaded(SourceFile sourceFile, ReloadStatus status, List<TypeInfo> current) {
+    }
+
+    private record ReloadCounts(int newSourceFiles, int changed, int read) {
+    }
+
+    /*
+    The files are examined in parallel; only then are the results applied to the source file map, sequentially.
+    The contents of a file are only read when its size or modification time differ from the ones seen
+    the previous time.
+     */
+    private ReloadCounts reloadSourceFiles(List<SourceFile> sourceFiles,
+                                           Map<String, String> sourcesByTestProtocolURIString,
+                                           List<InitializationProblem> initializationProblems,
+                                           Set<TypeInfo> changed) {
+        List<Reloaded> reloadedList = sourceFiles.parallelStream()
+                .map(sf -> reloadSourceFile(sf, sourcesByTestProtocolURIString, initializationProblems))
+                .toList();
+        int newSourceFiles = 0;
+        int changedSourceFiles = 0;
+        int read = 0;
+        for (Reloaded reloaded : reloadedList) {
+            SourceFile sf = reloaded.sourceFile;
+            switch (reloaded.status) {
+                case NEW -> {
+                    this.sourceFiles.put(sf, List.of());
+                    ++newSourceFiles;
+                }
+                case CHANGED -> {
+                    this.sourceFiles.put(sf, List.of());
+                    changed.addAll(reloaded.current);
+                    ++changedSourceFiles;
+                    ++read;
+                }
+                case UNCHANGED_AFTER_READING -> ++read;
+                case UNCHANGED -> {
+                }
+            }
+            lastSeenSourceFiles.put(sf, sf);
+        }
+        return new ReloadCounts(newSourceFiles, changedSourceFiles, read);
+    }
+
+    private Reloaded reloadSourceFile(SourceFile sf,
+                                      Map<String, String> sourcesByTestProtocolURIString,
+                                      List<InitializationProblem> initializationProblems) {
+        List<TypeInfo> current = this.sourceFiles.get(sf);
+        if (current == null) {
+            return new Reloaded(sf, ReloadStatus.NEW, null);
+        }
+        if (current.isEmpty() || sameMetadata(lastSeenSourceFiles.get(sf), sf)) {
+            return new Reloaded(sf, ReloadStatus.UNCHANGED, current);
+        }
+        TypeInfo typeInfo = current.getFirst();
+        FingerPrint currentFingerprint = typeInfo.compilationUnit().fingerPrintOrNull();
+        String sourceCode = loadSource(sf, sourcesByTestProtocolURIString,
+                sf.sourceSet().sourceEncoding(),
+                e -> initializationProblems.add(new InitializationProblem("parsing", e)));
+        FingerPrint newFingerprint = sourceCode == null ? MD5FingerPrint.NO_FINGERPRINT : MD5FingerPrint.compute(sourceCode);
+        assert currentFingerprint != null && currentFingerprint != MD5FingerPrint.NO_FINGERPRINT;
+        if (!currentFingerprint.equals(newFingerprint)) {
+            return new Reloaded(sf, ReloadStatus.CHANGED, current);
+        }
+        return new Reloaded(sf, ReloadStatus.UNCHANGED_AFTER_READING, current);
+    }
+
+    // sources that do not come from the file system have no metadata, and are always read
+    private static boolean sameMetadata(SourceFile lastSeen, SourceFile sf) {
+        return lastSeen != null && sf.size() >= 0 && sf.lastModified() >= 0
+               && lastSeen.size() == sf.size() && lastSeen.lastModified() == sf.lastModified();
+    }
+
+    /*
+    The file system is the authority: a dirty path that is a regular file is either new or (possibly) changed,
+    a dirty path that does not exist anymore is a deleted file or directory.
+     */
+    private void reloadChangedSources(Set<Path> paths,
+                                      List<InitializationProblem> initializationProblems,
+                                      Set<TypeInfo> changed) {
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        int removed = 0;
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                SourceFile sf = sourceFileInSourceRoots(path);
+                if (sf != null) sourceFiles.add(sf);
+            } else if (!Files.exists(path)) {
+                Set<SourceFile> toRemove = this.sourceFiles.keySet().stream()
+                        .filter(sf -> "file".equals(sf.uri().getScheme()) && Path.of(sf.uri()).startsWith(path))
+                        .collect(Collectors.toUnmodifiableSet());
+                this.sourceFiles.keySet().removeAll(toRemove);
+                this.lastSeenSourceFiles.keySet().removeAll(toRemove);
+                removed += toRemove.size();
+            }
+        }
+        ReloadCounts counts = reloadSourceFiles(sourceFiles, Map.of(), initializationProblems, changed);
+        LOGGER.info("Reloaded {} changed path(s): {} source file(s) removed, {} new, {} changed, {} read",
+                paths.size(), removed, counts.newSourceFiles, counts.changed, counts.read);
+    }
+
+    private SourceFile sourceFileInSourceRoots(Path path) {
+        for (SourceRoot root : sourceRoots) {
+            if (path.startsWith(root.absolute)) {
+                Path relative = root.absolute.relativize(path);
+                String name = relative.getFileName().toString();
+                if (!name.endsWith(".java")) return null;
+                Path parent = relative.getParent();
+                String packageName = parent == null ? "" : parent.toString().replace(File.separatorChar, '.');
+                String typeName = Resources.stripNameSuffix(name);
+                if (!root.sourceSet.acceptSource(packageName, typeName)) return null;
+                sourcePrimaryTypeNames.add(packageName.isEmpty() ? typeName : packageName + "." + typeName);
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    return new SourceFile(root.directory.resolve(relative).toString(),
+                            SourceDirectoryScanner.fileUri(path),
+                            root.sourceSet, null, attributes.size(), attributes.lastModifiedTime().toMillis());
+                } catch (IOException e) {
+                    LOGGER.warn("Cannot read attributes of {}: {}", path, e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private record SourceRoot(Path directory, Path absolute, SourceSet sourceSet) {
+    }
+
+    /*
+    returns null when one of the source sets is not a directory on the file system
+     */
+    private List<SourceRoot> computeSourceRoots(InputConfiguration inputConfiguration) {
+        List<SourceRoot> roots = new ArrayList<>();
+        for (SourceSet sourceSet : inputConfiguration.sourceSets()) {
+            List<String> directories;
+            if (!sourceSet.sourceDirectories().isEmpty()) {
+                directories = sourceSet.sourceDirectories().stream().map(Path::toString).toList();
+            } else if ("file".equals(sourceSet.uri().getScheme())) {
+                directories = List.of(sourceSet.uri().getSchemeSpecificPart());
+            } else {
+                return null;
+            }
+            for (String directory : directories) {
+                File file = toAbsoluteFile(inputConfiguration.workingDirectory(), directory);
+                if (!file.isDirectory()) return null;
+                roots.add(new SourceRoot(file.toPath(), file.toPath().toAbsolutePath(), sourceSet));
+            }
+        }
+        return List.copyOf(roots);
+    }
+
+    private void startWatchingSources(InputConfiguration inputConfiguration) throws IOException {
+        if (sourceChangeTracker != null) {
+            sourceChangeTracker.close();
+            sourceChangeTracker = null;
+            watchedInputConfiguration = null;
+        }
+        if (inputConfiguration.watchSources()) {
+            List<SourceRoot> roots = computeSourceRoots(inputConfiguration);
+            if (roots == null) {
+                LOGGER.warn("Not all source sets are directories on the file system, not watching sources");
+            } else {
+                sourceRoots = roots;
+                sourceChangeTracker = new SourceChangeTracker(roots.stream().map(SourceRoot::absolute).toList());
+                watchedInputConfiguration = inputConfiguration;
+            }
+        }
+    }
+
     private List<SourceFile> computeSourceURIs(Resources sourcePath) {
         List<SourceFile> sourceFiles = new LinkedList<>();
         AtomicInteger ignored = new AtomicInteger();
@@ -243,6 +549,8 @@ public class JavaInspectorImpl implements JavaInspector {
                     for (SourceFile sourceFile : list) {
                         if (sourceFile.sourceSet().acceptSource(packageName, typeName)) {
                             sourceFiles.add(sourceFile);
+                            sourcePrimaryTypeNames.add(packageName.isEmpty() ? typeName
+                                    : packageName + "." + typeName);
                             parts[n] = typeName;
                             perSourceSet.merge(sourceFile.sourceSet(), 1, Integer::sum);
                         } else {
@@ -270,31 +578,84 @@ public class JavaInspectorImpl implements JavaInspector {
     private Resources assembleClassPath(Path workingDirectory,
                                         List<SourceSet> sourceSets,
                                         Path alternativeJREDirectory,
+                                        Path cacheDirectory,
+                                        boolean parallel,
                                         List<InitializationProblem> initializationProblems) throws IOException, URISyntaxException {
-        Resources resources = new ResourcesImpl(workingDirectory);
-        for (SourceSet sourceSet : sourceSets) {
-            String scheme = sourceSet.uri().getScheme();
-            String path = sourceSet.uri().getSchemeSpecificPart();
-            handleSourceSet(workingDirectory, alternativeJREDirectory, "Class path", initializationProblems,
-                    sourceSet, path, scheme, resources);
-        }
-        return resources;
+        ClassPathIndex classPathIndex = cacheDirectory == null ? null
+                : new ClassPathIndex(cacheDirectory.resolve(CLASS_PATH_INDEX_DIRECTORY));
+        return assemble(workingDirectory, classPathIndex, sourceSets, parallel, initializationProblems,
+                (sourceSet, resources, problems) -> {
+                    String scheme = sourceSet.uri().getScheme();
+                    String path = sourceSet.uri().getSchemeSpecificPart();
+                    handleSourceSet(workingDirectory, alternativeJREDirectory, "Class path", problems,
+                            sourceSet, path, scheme, resources);
+                });
     }
 
     private Resources assembleSourcePath(Path workingDirectory,
                                          List<SourceSet> sourceSets,
+                                         boolean parallel,
                                          List<InitializationProblem> initializationProblems) throws IOException, URISyntaxException {
-        Resources resources = new ResourcesImpl(workingDirectory);
-        for (SourceSet sourceSet : sourceSets) {
-            if (sourceSet.sourceDirectories().isEmpty()) {
-                String scheme = sourceSet.uri().getScheme();
-                String path = sourceSet.uri().getSchemeSpecificPart();
-                handleSourceSet(workingDirectory, null, "Source path", initializationProblems,
-                        sourceSet, path, scheme, resources);
-            } else {
-                for (Path sourceDir : sourceSet.sourceDirectories()) {
-                    handleSourceSet(workingDirectory, null, "Source path", initializationProblems,
-                            sourceSet, sourceDir.toString(), "file", resources);
+        return assemble(workingDirectory, null, sourceSets, parallel, initializationProblems,
+                (sourceSet, resources, problems) -> {
+                    if (sourceSet.sourceDirectories().isEmpty()) {
+                        String scheme = sourceSet.uri().getScheme();
+                        String path = sourceSet.uri().getSchemeSpecificPart();
+                        handleSourceSet(workingDirectory, null, "Source path", problems,
+                                sourceSet, path, scheme, resources);
+                    } else {
+                        for (Path sourceDir : sourceSet.sourceDirectories()) {
+                            handleSourceSet(workingDirectory, null, "Source path", problems,
+                                    sourceSet, sourceDir.toString(), "file", resources);
+                        }
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface SourceSetHandler {
+        void handle(SourceSet sourceSet, Resources resources, List<InitializationProblem> initializationProblems)
+                throws IOException, URISyntaxException;
+    }
+
+    private record AssembledPart(ResourcesImpl resources, List<InitializationProblem> problems, Exception exception) {
+    }
+
+    /*
+    In parallel mode, every part gets its own resources object, which are merged in the order of the parts
+    afterward. The parts share the runtime image file system of the result. This guarantees the same result as the sequential mode, where the first part wins in case of duplicates.
+     */
+    private Resources assemble(Path workingDirectory,
+                               ClassPathIndex classPathIndex,
+                               List<SourceSet> sourceSets,
+                               boolean parallel,
+                               List<InitializationProblem> initializationProblems,
+                               SourceSetHandler handler) throws IOException, URISyntaxException {
+        ResourcesImpl resources = new ResourcesImpl(workingDirectory, classPathIndex, parallel);
+        if (!parallel || sourceSets.size() < 2) {
+            for (SourceSet sourceSet : sourceSets) {
+                handler.handle(sourceSet, resources, initializationProblems);
+            }
+            return resources;
+        }
+        List<AssembledPart> parts = sourceSets.parallelStream().map(sourceSet -> {
+            ResourcesImpl partResources = resources.newPart();
+            List<InitializationProblem> partProblems = new ArrayList<>();
+            try {
+                handler.handle(sourceSet, partResources, partProblems);
+                return new AssembledPart(partResources, partProblems, null);
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                return new AssembledPart(partResources, partProblems, e);
+            }
+        }).toList(); // toList() respects the encounter order
+        for (AssembledPart part : parts) {
+            switch (part.exception) {
+                case IOException ioe -> throw ioe;
+                case URISyntaxException use -> throw use;
+                case RuntimeException re -> throw re;
+                case null, default -> {
+                    initializationProblems.addAll(part.problems);
+                    resources.addAll(part.resources);
                 }
             }
         }
@@ -320,10 +681,25 @@ public class JavaInspectorImpl implements JavaInspector {
             case "jmod" -> {
                 try {
                     URL url = ResourcesImpl.constructJModURL(path, alternativeJREDirectory);
-                    FingerPrint fingerPrint = makeFingerPrint(url);
-                    sourceSet.setFingerPrint(fingerPrint);
-                    int entries = resources.addJmod(new SourceFile(path, url.toURI(), sourceSet, null));
-                    LOGGER.debug("Added {} entries for jmod {}", entries, path);
+                    Path jmodPath = ResourcesImpl.containerPath(url);
+                    if (!path.startsWith("/") && jmodPath != null && !Files.exists(jmodPath)) {
+                        // slim JDKs do not ship jmods; all modules are present in the runtime image
+                        LOGGER.warn("{} not found, reading module {} from the runtime image instead", jmodPath, path);
+                        addJrt(resources, path, alternativeJREDirectory, sourceSet);
+                    } else {
+                        FingerPrint fingerPrint = makeFingerPrint(url);
+                        sourceSet.setFingerPrint(fingerPrint);
+                        int entries = resources.addJmod(new SourceFile(path, url.toURI(), sourceSet, null));
+                        LOGGER.debug("Added {} entries for jmod {}", entries, path);
+                    }
+                } catch (IOException e) {
+                    throwable = e;
+                }
+            }
+            case "jrt" -> {
+                try {
+                    addJrt(resources, path.startsWith("/") ? path.substring(1) : path, alternativeJREDirectory,
+                            sourceSet);
                 } catch (IOException e) {
                     throwable = e;
                 }
@@ -373,16 +749,35 @@ public class JavaInspectorImpl implements JavaInspector {
         LOGGER.debug("Added {} entries for jar {}", entries, part);
     }
 
-    private static final Pattern JAR_URL_PATTERN = Pattern.compile("jar:(file:.+)!/");
+    private void addJrt(Resources resources, String module, Path alternativeJREDirectory, SourceSet sourceSet) throws IOException {
+        FingerPrint fingerPrint = makeJrtFingerPrint(module, alternativeJREDirectory);
+        sourceSet.setFingerPrint(fingerPrint);
+        int entries = resources.addJrt(new SourceFile(module, sourceSet.uri(), sourceSet, null),
+                alternativeJREDirectory);
+        LOGGER.debug("Added {} entries for module {} of the runtime image", entries, module);
+    }
 
-    private FingerPrint makeFingerPrint(URL jarUrl) throws URISyntaxException, IOException {
+    /*
+    The runtime image is too large to hash. Its content is fully determined by the JDK release, however.
+     */
+    private FingerPrint makeJrtFingerPrint(String module, Path alternativeJREDirectory) throws IOException {
+        if (computeFingerPrints) {
+            Path javaHome = alternativeJREDirectory == null ? Path.of(System.getProperty("java.home"))
+                    : alternativeJREDirectory;
+            Path release = javaHome.resolve("release");
+            String version = Files.isRegularFile(release) ? Files.readString(release)
+                    : javaHome.toAbsolutePath() + "\n" + System.getProperty("java.runtime.version");
+            return MD5FingerPrint.compute(module + "\n" + version);
+        }
+        return MD5FingerPrint.NO_FINGERPRINT;
+    }
+
+    private FingerPrint makeFingerPrint(URL jarUrl) throws IOException {
         if (computeFingerPrints) {
             try {
-                Matcher m = JAR_URL_PATTERN.matcher(jarUrl.toString());
-                if (m.matches()) {
-                    Path path = Path.of(new URI(m.group(1)));
-                    byte[] bytes = Files.readAllBytes(path);
-                    return MD5FingerPrint.compute(bytes);
+                Path path = ResourcesImpl.containerPath(jarUrl);
+                if (path != null) {
+                    return jarFingerPrints.fingerPrint(path);
                 } else {
                     throw new UnsupportedOperationException("? " + jarUrl);
                 }
@@ -431,17 +826,19 @@ public class JavaInspectorImpl implements JavaInspector {
                                                     ParseOptions parseOptions) {
         Resolver resolver = new ResolverImpl(runtime.computeMethodOverrides(), new ParseHelperImpl(runtime),
                 parseOptions.parallel());
+        MemberIndex memberIndex = new MemberIndex();
         TypeContextImpl typeContext = new TypeContextImpl(runtime, compiledTypesManager, sourceTypeMap,
-                false);
+                false, memberIndex);
         //TODO  allowCreationOfStubTypes); code in TypeContextImpl needs improving
         Context rootContext = ContextImpl.create(runtime, summary, resolver, typeContext,
-                parseOptions.detailedSources());
+                parseOptions.detailedSources(), memberIndex);
         ScanCompilationUnit scanCompilationUnit = new ScanCompilationUnit(summary, runtime);
 
         ScanCompilationUnit.ScanResult sr = scanCompilationUnit.scan(sourceFile.uri(), sourceFile.sourceSet(),
                 sourceFile.fingerPrint(), parser.get().CompilationUnit(),
                 parseOptions.detailedSources());
         sourceTypeMap.putAll(sr.sourceTypes());
+        typesInPackageCache.clear();
         CompilationUnit cu = sr.compilationUnit();
 
         ParseCompilationUnit parseCompilationUnit = new ParseCompilationUnit(rootContext);
@@ -490,14 +887,17 @@ public class JavaInspectorImpl implements JavaInspector {
     @Override
     public Summary parse(Map<String, String> sourcesByTestProtocolURIString, ParseOptions parseOptions) {
         Summary summary = new SummaryImpl(parseOptions.failFast()); // once stable, change to false
+        typesInPackageCache.clear();
         Resolver resolver = new ResolverImpl(runtime.computeMethodOverrides(), new ParseHelperImpl(runtime),
                 parseOptions.parallel());
 
+        // one index of library members for the whole parse run, shared by type context and method resolution
+        MemberIndex memberIndex = new MemberIndex();
         TypeContextImpl typeContext = new TypeContextImpl(runtime, compiledTypesManager, sourceTypeMap,
-                false);
+                false, memberIndex);
         // TODO allowCreationOfStubTypes); would be better, but code in type context is not ready
         Context rootContext = ContextImpl.create(runtime, summary, resolver, typeContext,
-                parseOptions.detailedSources());
+                parseOptions.detailedSources(), memberIndex);
 
         // PHASE 1: scanning all the types, call CongoCC parser
 
@@ -541,6 +941,10 @@ public class JavaInspectorImpl implements JavaInspector {
         });
 
         count.set(0);
+        // while scanning, load the library types that the sources import
+        BackgroundPreloader backgroundPreloader = parseOptions.parallel()
+                ? new BackgroundPreloader(compiledTypesManager, this::isOrCouldBeSourceType)
+                : null;
         Stream<Map.Entry<SourceFile, String>> stream2 = sourceFilesToParse.entrySet().stream();
         Stream<Map.Entry<SourceFile, String>> parallelStream2 = parseOptions.parallel()
                 ? stream2.parallel()
@@ -560,8 +964,12 @@ public class JavaInspectorImpl implements JavaInspector {
                     }
                     return null;
                 } else {
-                    return parseSourceString(sourceFile, sourceFile.sourceSet(),
+                    SourceFileCompilationUnit sfCu = parseSourceString(sourceFile, sourceFile.sourceSet(),
                             entry.getValue(), summary, parseOptions.detailedSources());
+                    if (backgroundPreloader != null) {
+                        backgroundPreloader.preloadImports(sourceFile.uri(), sfCu.parsedCu().importStatements());
+                    }
+                    return sfCu;
                 }
             } catch (Exception parseException) {
                 LOGGER.error("Caught parse exception in {}", sourceFile.uri());
@@ -570,6 +978,10 @@ public class JavaInspectorImpl implements JavaInspector {
                 return null;
             }
         }).filter(Objects::nonNull).toList();
+        if (backgroundPreloader != null) {
+            // preloading is speculative: failures are logged, the parser reports the types that are actually used
+            backgroundPreloader.close();
+        }
 
         // PHASE 3: actual parsing of types, methods, fields
         count.set(0);
@@ -654,6 +1066,7 @@ public class JavaInspectorImpl implements JavaInspector {
             rewired.forEach(sourceTypeMap::put);
             rewired.forEach(summary::addType);
         }
+        typesInPackageCache.clear();
 
         // PHASE 3: resolving: content of methods, field initializers
 
@@ -661,6 +1074,19 @@ public class JavaInspectorImpl implements JavaInspector {
         return summary;
     }
 
+    /*
+    a.b.C.D is a source type when a.b.C.D, a.b.C, or a.b is the name of a source file's primary type
+     */
+    private boolean isOrCouldBeSourceType(String fullyQualifiedName) {
+        String name = fullyQualifiedName;
+        while (true) {
+            if (sourcePrimaryTypeNames.contains(name) || sourceTypeMap.get(name, null) != null) return true;
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) return false;
+            name = name.substring(0, dot);
+        }
+    }
+
     private void computeSingleAbstractMethods(Collection<TypeInfo> types, boolean parallel) {
         AtomicInteger count = new AtomicInteger();
         ComputeMethodOverrides cmo = runtime.computeMethodOverrides();
@@ -769,16 +1195,43 @@ public class JavaInspectorImpl implements JavaInspector {
         return sourceFiles.keySet();
     }
 
+    /**
+     * Stop watching the source directories, and release the files kept open by the class path.
+     * The class path of a shared inspector is left open: it is closed by closing the shared inspector.
+     */
+    @Override
+    public void close() throws IOException {
+        if (sourceChangeTracker != null) {
+            sourceChangeTracker.close();
+            sourceChangeTracker = null;
+            watchedInputConfiguration = null;
+        }
+        if (compiledTypesManager != null) {
+            compiledTypesManager.classPath().close();
+        }
+    }
+
 
     @Override
     public ImportComputer importComputer(int minStar) {
-        return runtime.newImportComputer(minStar, packageName ->
-                TypeContextImpl.typesInSamePackage(packageName, sourceTypeMap, compiledTypesManager));
+        // the computer itself may hold state; only the types per package are shared
+        return runtime.newImportComputer(minStar, this::typesInPackage);
+    }
+
+    /*
+    no computeIfAbsent: listing a package may load types, and wait for other threads doing so
+     */
+    private List<TypeInfo> typesInPackage(String packageName) {
+        List<TypeInfo> cached = typesInPackageCache.get(packageName);
+        if (cached != null) return cached;
+        List<TypeInfo> types = TypeContextImpl.typesInSamePackage(packageName, sourceTypeMap, compiledTypesManager);
+        typesInPackageCache.putIfAbsent(packageName, types);
+        return types;
     }
 
     @Override
     public String print2(TypeInfo typeInfo) {
-        return print2(typeInfo, null, importComputer(4));
+        return print2(typeInfo, null, importComputer(DEFAULT_MIN_STAR));
     }
 
     @Override
@@ -789,6 +1242,93 @@ public class JavaInspectorImpl implements JavaInspector {
         return formatter.write(ob);
     }
 
+    /*
+    Every worker thread has its own formatter and import computer, so that their state is never shared.
+    The formatter only produces a String; it is encoded while it is written, rather than being converted
+    into a byte array first, and it is dropped as soon as the file has been written.
+     */
+    @Override
+    public PrintSummary print2(Collection<TypeInfo> primaryTypes, Path outputRoot, int parallelism)
+            throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive, not " + parallelism);
+        }
+        ThreadLocal<Formatter> workerFormatters = ThreadLocal.withInitial(() ->
+                new Formatter2Impl(runtime, new FormattingOptionsImpl.Builder().build()));
+        ThreadLocal<ImportComputer> workerImportComputers = ThreadLocal.withInitial(() ->
+                importComputer(DEFAULT_MIN_STAR));
+        Qualification qualification = runtime.qualificationQualifyFromPrimaryType(null);
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(primaryTypes.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            for (TypeInfo typeInfo : primaryTypes) {
+                assert typeInfo.isPrimaryType();
+                futures.add(executor.submit(() -> {
+                    OutputBuilder ob = runtime.newTypePrinter(typeInfo, true).print(workerImportComputers.get(),
+                            qualification, true);
+                    String content = workerFormatters.get().write(ob);
+                    Path directory = outputRoot;
+                    for (String part : typeInfo.packageName().split("\\.")) {
+                        if (!part.isEmpty()) directory = directory.resolve(part);
+                    }
+                    Files.createDirectories(directory);
+                    Path file = directory.resolve(typeInfo.simpleName() + ".java");
+                    CountingOutputStream outputStream = new CountingOutputStream(Files.newOutputStream(file));
+                    try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+                        writer.write(content);
+                    }
+                    bytes.addAndGet(outputStream.count);
+                    return null;
+                }));
+            }
+        }
+        IOException ioException = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ee) {
+                switch (ee.getCause()) {
+                    case IOException ioe -> {
+                        if (ioException == null) ioException = ioe;
+                    }
+                    case RuntimeException re -> throw re;
+                    case Error error -> throw error;
+                    default -> throw new RuntimeException(ee.getCause());
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ie);
+            }
+        }
+        if (ioException != null) throw ioException;
+        PrintSummary printSummary = new PrintSummary(primaryTypes.size(), bytes.get(), System.nanoTime() - start);
+        LOGGER.info("Printed {} types, {} bytes in {} ms: {} types/s, {} bytes/s", printSummary.types(),
+                printSummary.bytes(), printSummary.nanos() / 1_000_000, (long) printSummary.typesPerSecond(),
+                (long) printSummary.bytesPerSecond());
+        return printSummary;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     public SourceTypeMapImpl getSourceTypeMap() {
         return sourceTypeMap;
     }
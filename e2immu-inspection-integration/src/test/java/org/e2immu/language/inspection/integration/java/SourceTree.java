@@ -0,0 +1,37 @@
+package org.e2immu.language.inspection.integration.java;
+
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+A source directory on the file system, typically a @TempDir, for the tests that read their sources from disk
+rather than from strings.
+ */
+public record SourceTree(Path root) {
+
+    /**
+     * @param fullyQualifiedName the primary type, e.g. a.b.C; the source goes into a/b/C.java
+     * @return the file that has been written
+     */
+    public Path write(String fullyQualifiedName, String source) throws IOException {
+        int dot = fullyQualifiedName.lastIndexOf('.');
+        Path directory = dot < 0 ? root : directory(fullyQualifiedName.substring(0, dot));
+        return Files.writeString(directory.resolve(fullyQualifiedName.substring(dot + 1) + ".java"), source);
+    }
+
+    public Path directory(String packageName) throws IOException {
+        return Files.createDirectories(root.resolve(packageName.replace('.', '/')));
+    }
+
+    /**
+     * @return an input configuration builder with the JDK modules on the class path, and this tree as sources
+     */
+    public InputConfigurationImpl.Builder inputConfiguration() {
+        return new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .addSources(root.toString());
+    }
+}
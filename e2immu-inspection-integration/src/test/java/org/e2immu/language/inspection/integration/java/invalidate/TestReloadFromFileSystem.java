@@ -0,0 +1,50 @@
+package org.e2immu.language.inspection.integration.java.invalidate;
+
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.integration.java.SourceTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestReloadFromFileSystem {
+
+    @Test
+    public void test(@TempDir Path base) throws IOException {
+        SourceTree sourceTree = new SourceTree(base);
+        Path c = sourceTree.write("a.b.C", "package a.b; public class C { }");
+        Path d = sourceTree.write("a.b.D", "package a.b; public class D { C c; }");
+
+        InputConfiguration inputConfiguration = sourceTree.inputConfiguration().build();
+        JavaInspectorImpl javaInspector = new JavaInspectorImpl(true, false);
+        javaInspector.initialize(inputConfiguration);
+        javaInspector.parse(JavaInspectorImpl.FAIL_FAST);
+        assertEquals(2, javaInspector.sourceFiles().size());
+
+        // nothing changed
+        JavaInspector.ReloadResult rr1 = javaInspector.reloadSources(inputConfiguration, Map.of());
+        assertTrue(rr1.sourceHasChanged().isEmpty());
+
+        // only the modification time changed: the content is read, but the type has not changed
+        Files.setLastModifiedTime(c, FileTime.fromMillis(Files.getLastModifiedTime(c).toMillis() + 2000));
+        JavaInspector.ReloadResult rr2 = javaInspector.reloadSources(inputConfiguration, Map.of());
+        assertTrue(rr2.sourceHasChanged().isEmpty());
+
+        Files.writeString(c, "package a.b; public class C { int i; }");
+        JavaInspector.ReloadResult rr3 = javaInspector.reloadSources(inputConfiguration, Map.of());
+        assertEquals("[a.b.C]", rr3.sourceHasChanged().toString());
+
+        Files.delete(d);
+        JavaInspector.ReloadResult rr4 = javaInspector.reloadSources(inputConfiguration, Map.of());
+        assertTrue(rr4.sourceHasChanged().isEmpty());
+        assertEquals(1, javaInspector.sourceFiles().size());
+    }
+}
@@ -0,0 +1,85 @@
+package org.e2immu.language.inspection.integration.java.invalidate;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.api.resource.SourceFile;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.integration.java.SourceTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestReloadWatchedSources {
+
+    @Test
+    public void test(@TempDir Path base) throws IOException, InterruptedException {
+        SourceTree sourceTree = new SourceTree(base);
+        Path c = sourceTree.write("a.b.C", "package a.b; public class C { }");
+        Path d = sourceTree.write("a.b.D", "package a.b; public class D { C c; }");
+
+        InputConfiguration inputConfiguration = sourceTree.inputConfiguration().setWatchSources(true).build();
+        JavaInspectorImpl javaInspector = new JavaInspectorImpl(true, false);
+        javaInspector.initialize(inputConfiguration);
+        javaInspector.parse(JavaInspectorImpl.FAIL_FAST);
+        assertEquals(2, javaInspector.sourceFiles().size());
+
+        // nothing changed
+        JavaInspector.ReloadResult rr1 = javaInspector.reloadSources(inputConfiguration, Map.of());
+        assertTrue(rr1.sourceHasChanged().isEmpty());
+
+        // modify, add, and delete, in one go
+        Files.writeString(c, "package a.b; public class C { int i; }");
+        sourceTree.write("a.b.E", "package a.b; public class E { }");
+        Files.delete(d);
+        Set<TypeInfo> changed = reloadUntil(javaInspector, inputConfiguration, "[C.java, E.java]");
+        assertEquals("[a.b.C]", changed.toString());
+
+        // test protocol sources cannot be combined with watching
+        assertThrows(IllegalArgumentException.class, () -> javaInspector.reloadSources(inputConfiguration,
+                Map.of("test-protocol:a.b.F", "package a.b; class F { }")));
+
+        // a different input configuration: full reload, and the new one is watched from now on
+        SourceTree otherTree = new SourceTree(Files.createDirectories(base.resolve("other")));
+        Path x = otherTree.write("x.X", "package x; public class X { }");
+        InputConfiguration otherConfiguration = otherTree.inputConfiguration().setWatchSources(true).build();
+        JavaInspector.ReloadResult rr3 = javaInspector.reloadSources(otherConfiguration, Map.of());
+        assertTrue(rr3.problems().isEmpty());
+        assertEquals(1, javaInspector.sourceFiles().size());
+        SourceFile sourceFile = javaInspector.sourceFiles().stream().findFirst().orElseThrow();
+        assertEquals(x.getFileName(), Path.of(sourceFile.uri()).getFileName());
+
+        Files.delete(x);
+        assertTrue(reloadUntil(javaInspector, otherConfiguration, "[]").isEmpty());
+        javaInspector.close();
+    }
+
+    /*
+    Events arrive asynchronously, and a reload without pending events returns at once:
+    reload until the expected source files are present.
+     */
+    private static Set<TypeInfo> reloadUntil(JavaInspectorImpl javaInspector, InputConfiguration inputConfiguration,
+                                             String expectedFileNames) throws IOException, InterruptedException {
+        Set<TypeInfo> changed = new HashSet<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (true) {
+            JavaInspector.ReloadResult rr = javaInspector.reloadSources(inputConfiguration, Map.of());
+            assertTrue(rr.problems().isEmpty());
+            changed.addAll(rr.sourceHasChanged());
+            String fileNames = javaInspector.sourceFiles().stream()
+                    .map(sf -> Path.of(sf.uri()).getFileName().toString()).sorted().toList().toString();
+            if (expectedFileNames.equals(fileNames)) return changed;
+            assertTrue(System.nanoTime() - deadline < 0, "Still " + fileNames);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package org.e2immu.language.inspection.integration.java.method;
 
+import org.e2immu.language.cst.api.expression.MethodCall;
 import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.cst.api.statement.ReturnStatement;
 import org.e2immu.language.inspection.integration.java.CommonTest;
 import org.intellij.lang.annotations.Language;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TestMethodCall11 extends CommonTest {
 
@@ -95,4 +97,36 @@ public class TestMethodCall11 extends CommonTest {
         TypeInfo publisher = typeInfo.findSubType("Publisher");
         assertTrue(publisher.isFunctionalInterface());
     }
+
+    @Language("java")
+    private static final String INPUT3 = """
+            package a.b;
+            import java.util.ArrayList;
+            import java.util.List;
+            class X {
+                List<String> strings;
+                ArrayList<Integer> integers;
+                String s() { return strings.get(0); }
+                Integer i() { return integers.get(0); }
+                String t() { return strings.get(1); }
+            }
+            """;
+
+    // the candidates of 'get' on a library type are cached; the type parameters must come from the call site
+    @Test
+    public void test3() {
+        TypeInfo typeInfo = javaInspector.parse(INPUT3);
+        assertEquals("Type String", concreteReturnType(typeInfo, "s"));
+        assertEquals("Type Integer", concreteReturnType(typeInfo, "i"));
+        assertEquals("Type String", concreteReturnType(typeInfo, "t"));
+    }
+
+    private static String concreteReturnType(TypeInfo typeInfo, String methodName) {
+        if (typeInfo.findUniqueMethod(methodName, 0).methodBody().statements().getFirst() instanceof ReturnStatement rs
+            && rs.expression() instanceof MethodCall mc) {
+            return mc.concreteReturnType().toString();
+        }
+        fail();
+        return null;
+    }
 }
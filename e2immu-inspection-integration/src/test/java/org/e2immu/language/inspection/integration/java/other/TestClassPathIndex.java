@@ -0,0 +1,48 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.ClassPathIndex;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.e2immu.language.inspection.resource.ResourcesImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestClassPathIndex {
+
+    @Test
+    public void test(@TempDir Path cacheDirectory) throws IOException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath("jmod:java.base")
+                .setCacheDirectory(cacheDirectory.toString())
+                .build();
+
+        JavaInspector javaInspector1 = new JavaInspectorImpl();
+        javaInspector1.initialize(inputConfiguration);
+        TypeInfo list1 = javaInspector1.compiledTypesManager().getOrLoad(List.class);
+        assertNotNull(list1);
+
+        ClassPathIndex classPathIndex = new ClassPathIndex(cacheDirectory
+                .resolve(JavaInspectorImpl.CLASS_PATH_INDEX_DIRECTORY));
+        Path javaBase = ResourcesImpl.containerPath(ResourcesImpl.constructJModURL("java.base", null));
+        assertNotNull(javaBase);
+        List<String> entries = classPathIndex.load(javaBase, null);
+        assertNotNull(entries);
+        assertTrue(entries.contains("classes/java/util/List.class"));
+
+        // second time: from the index
+        JavaInspector javaInspector2 = new JavaInspectorImpl();
+        javaInspector2.initialize(inputConfiguration);
+        TypeInfo list2 = javaInspector2.compiledTypesManager().getOrLoad(List.class);
+        assertNotNull(list2);
+        assertTrue(list2.hasBeenInspected());
+    }
+}
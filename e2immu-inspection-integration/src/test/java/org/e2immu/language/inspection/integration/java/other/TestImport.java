@@ -616,4 +616,29 @@ public class TestImport extends CommonTest {
         assertEquals("Type a.b.X.Reference<K,V>", weakEntryRefConstructor.parameters().get(2).parameterizedType().toString());
     }
 
+
+    @Language("java")
+    private static final String INPUT21 = """
+            package a.b;
+            import java.util.zip.*;
+            class X {
+                long checksum(byte[] bytes) {
+                    Checksum checksum = new CRC32();
+                    checksum.update(bytes);
+                    return checksum.getValue();
+                }
+            }
+            """;
+
+    @DisplayName("types of a star-imported package are only loaded when used")
+    @Test
+    public void test21() {
+        TypeInfo X = javaInspector.parse(INPUT21);
+        MethodInfo checksum = X.findUniqueMethod("checksum", 1);
+        LocalVariableCreation lvc = (LocalVariableCreation) checksum.methodBody().statements().getFirst();
+        assertEquals("Type java.util.zip.Checksum", lvc.localVariable().parameterizedType().toString());
+        ConstructorCall cc = (ConstructorCall) lvc.localVariable().assignmentExpression();
+        assertEquals("java.util.zip.CRC32", cc.constructor().typeInfo().fullyQualifiedName());
+        assertNull(javaInspector.compiledTypesManager().get("java.util.zip.Adler32", null));
+    }
 }
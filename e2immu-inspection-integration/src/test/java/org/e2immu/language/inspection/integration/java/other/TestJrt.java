@@ -0,0 +1,65 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.cst.api.info.MethodInfo;
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.api.resource.Resources;
+import org.e2immu.language.inspection.api.resource.SourceFile;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJrt {
+
+    @Test
+    public void test() throws IOException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_JRT_MODULES)
+                .build();
+        JavaInspector javaInspector = new JavaInspectorImpl();
+        List<JavaInspector.InitializationProblem> problems = javaInspector.initialize(inputConfiguration);
+        assertTrue(problems.isEmpty(), "Problems: " + problems);
+
+        SourceFile sf = javaInspector.compiledTypesManager().fqnToPath("java.util.Map.Entry", ".class");
+        assertNotNull(sf);
+        assertEquals("java/util/Map$Entry.class", sf.path());
+        assertEquals("jrt:/java.base/java/util/Map$Entry.class", sf.uri().toString());
+        assertTrue(sf.sourceSet().partOfJdk());
+
+        TypeInfo map = javaInspector.compiledTypesManager().getOrLoad(Map.class);
+        assertNotNull(map);
+        assertTrue(map.hasBeenInspected());
+        MethodInfo get = map.findUniqueMethod("get", 1);
+        assertTrue(get.isAbstract());
+
+        TypeInfo connection = javaInspector.compiledTypesManager().getOrLoad("java.sql.Connection", null);
+        assertNotNull(connection);
+    }
+
+    @Test
+    public void testParallelAndClose() throws IOException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_JRT_MODULES)
+                .setParallelInitialization(true)
+                .build();
+        JavaInspectorImpl javaInspector = new JavaInspectorImpl();
+        List<JavaInspector.InitializationProblem> problems = javaInspector.initialize(inputConfiguration);
+        assertTrue(problems.isEmpty(), "Problems: " + problems);
+
+        // all modules are read through the same runtime image file system
+        Resources classPath = javaInspector.compiledTypesManager().classPath();
+        assertNotNull(classPath.loadBytes("java/util/Map.class"));
+        assertNotNull(classPath.loadBytes("java/sql/Connection.class"));
+
+        // the runtime image of the current JVM cannot be closed; reading continues to work
+        javaInspector.close();
+        assertNotNull(classPath.loadBytes("java/util/List.class"));
+    }
+}
@@ -68,9 +68,10 @@ public class TestModuleInfo {
         Summary summary = new SummaryImpl(true); // once stable, change to false
         Resolver resolver = new ResolverImpl(runtime.computeMethodOverrides(), new ParseHelperImpl(runtime), false);
 
+        MemberIndex memberIndex = new MemberIndex();
         TypeContextImpl typeContext = new TypeContextImpl(runtime, javaInspector.compiledTypesManager(),
-                new SourceTypeMapImpl(), true);
-        Context rootContext = ContextImpl.create(runtime, summary, resolver, typeContext, true);
+                new SourceTypeMapImpl(), true, memberIndex);
+        Context rootContext = ContextImpl.create(runtime, summary, resolver, typeContext, true, memberIndex);
 
         ModuleInfo moduleInfo = javaInspector.parseModuleInfo(MODULE_INFO, rootContext);
 
@@ -0,0 +1,48 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.api.resource.Resources;
+import org.e2immu.language.inspection.api.resource.SourceFile;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.e2immu.language.inspection.integration.JavaInspectorImpl.JAR_WITH_PATH_PREFIX;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestParallelInitialization {
+
+    private static Resources classPath(boolean parallel) throws IOException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .addClassPath(JavaInspectorImpl.E2IMMU_SUPPORT)
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/junit/jupiter/api")
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/slf4j/event")
+                .setParallelInitialization(parallel)
+                .build();
+        JavaInspector javaInspector = new JavaInspectorImpl();
+        List<JavaInspector.InitializationProblem> problems = javaInspector.initialize(inputConfiguration);
+        assertTrue(problems.isEmpty(), "Problems: " + problems);
+        return javaInspector.compiledTypesManager().classPath();
+    }
+
+    @Test
+    public void test() throws IOException {
+        Resources sequential = classPath(false);
+        Resources parallel = classPath(true);
+
+        List<SourceFile> s = sequential.expandURLs(".class");
+        List<SourceFile> p = parallel.expandURLs(".class");
+        assertEquals(s.size(), p.size());
+        assertEquals(s, p);
+        assertEquals(sequential.getJarSizes(), parallel.getJarSizes());
+
+        SourceFile sf = parallel.fqnToPath("org.junit.jupiter.api.Assertions", ".class");
+        assertNotNull(sf);
+        assertEquals("org/junit/jupiter/api/Assertions.class", sf.path());
+    }
+}
@@ -0,0 +1,79 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.cst.api.info.FieldInfo;
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.parser.Summary;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.integration.java.SourceTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.e2immu.language.inspection.integration.JavaInspectorImpl.JAR_WITH_PATH_PREFIX;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+A source type shadows a type of a jar on the class path. Parsing in parallel preloads the imports of the sources;
+the class path copy must never be loaded.
+ */
+public class TestPreloadShadowedType {
+
+    private static JavaInspectorImpl parseInParallel(Path base, String levelImport) throws IOException {
+        SourceTree sourceTree = new SourceTree(base);
+        sourceTree.write("org.slf4j.event.Level", "package org.slf4j.event; public enum Level { ERROR, WARN }");
+        for (int i = 0; i < 8; i++) {
+            sourceTree.write("a.X" + i, """
+                    package a;
+                    import %s;
+                    import java.util.List;
+                    class X%d {
+                        Level level = Level.WARN;
+                        List<Level> levels;
+                    }
+                    """.formatted(levelImport, i));
+        }
+        JavaInspectorImpl javaInspector = new JavaInspectorImpl();
+        assertTrue(javaInspector.initialize(sourceTree.inputConfiguration()
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/slf4j/event")
+                .build()).isEmpty());
+        assertNotNull(javaInspector.compiledTypesManager().fqnToPath("org.slf4j.event.Level", ".class"));
+
+        JavaInspector.ParseOptions parallel = new JavaInspectorImpl.ParseOptionsBuilder()
+                .setParallel(true).build();
+        Summary summary = javaInspector.parse(parallel);
+        assertTrue(summary.parseExceptions().isEmpty(), "Problems: " + summary.parseExceptions());
+        return javaInspector;
+    }
+
+    @Test
+    public void test(@TempDir Path base) throws IOException {
+        JavaInspectorImpl javaInspector = parseInParallel(base, "org.slf4j.event.Level");
+
+        assertNull(javaInspector.compiledTypesManager().get("org.slf4j.event.Level", null));
+        TypeInfo level = javaInspector.getSourceTypeMap().get("org.slf4j.event.Level", null);
+        assertNotNull(level);
+        TypeInfo x0 = javaInspector.getSourceTypeMap().get("a.X0", null);
+        FieldInfo levelField = x0.getFieldByName("level", true);
+        assertSame(level, levelField.type().typeInfo());
+        // the other import has been preloaded
+        TypeInfo list = javaInspector.compiledTypesManager().get("java.util.List", null);
+        assertNotNull(list);
+        assertTrue(list.hasBeenInspected());
+    }
+
+    /*
+    Asterisk imports are not preloaded: loading the package would load the class path copy of Level as well.
+     */
+    @Test
+    public void testAsteriskImport(@TempDir Path base) throws IOException {
+        JavaInspectorImpl javaInspector = parseInParallel(base, "org.slf4j.event.*");
+
+        assertNull(javaInspector.compiledTypesManager().get("org.slf4j.event.Level", null));
+        TypeInfo level = javaInspector.getSourceTypeMap().get("org.slf4j.event.Level", null);
+        TypeInfo x0 = javaInspector.getSourceTypeMap().get("a.X0", null);
+        assertSame(level, x0.getFieldByName("level", true).type().typeInfo());
+    }
+}
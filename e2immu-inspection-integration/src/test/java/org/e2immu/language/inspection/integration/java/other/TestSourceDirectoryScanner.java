@@ -0,0 +1,48 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.inspection.integration.java.SourceTree;
+import org.e2immu.language.inspection.resource.SourceDirectoryScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSourceDirectoryScanner {
+
+    @Test
+    public void test(@TempDir Path base) throws IOException {
+        SourceTree sourceTree = new SourceTree(base);
+        Path c = sourceTree.write("a.b.C", "package a.b; class C {}");
+        sourceTree.write("a.D", "package a; class D {}");
+        sourceTree.directory("e");
+
+        List<SourceDirectoryScanner.Entry> sequential = sorted(new SourceDirectoryScanner(false).scan(base));
+        List<SourceDirectoryScanner.Entry> parallel = sorted(new SourceDirectoryScanner(true).scan(base));
+        assertEquals(2, sequential.size());
+        assertEquals(2, parallel.size());
+        for (int i = 0; i < 2; i++) {
+            SourceDirectoryScanner.Entry s = sequential.get(i);
+            SourceDirectoryScanner.Entry p = parallel.get(i);
+            assertArrayEquals(s.packageParts(), p.packageParts());
+            assertEquals(s.path(), p.path());
+            assertEquals(s.uri(), p.uri());
+            assertEquals(s.size(), p.size());
+            assertEquals(s.lastModified(), p.lastModified());
+            assertEquals(s.path().toFile().toURI(), s.uri());
+        }
+        SourceDirectoryScanner.Entry entry = sequential.get(1);
+        assertArrayEquals(new String[]{"a", "b"}, entry.packageParts());
+        assertEquals("C.java", entry.name());
+        assertEquals(Files.size(c), entry.size());
+    }
+
+    private static List<SourceDirectoryScanner.Entry> sorted(List<SourceDirectoryScanner.Entry> entries) {
+        return entries.stream().sorted(Comparator.comparing(e -> e.path().toString())).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package org.e2immu.language.inspection.integration.java.other;
+
+import org.e2immu.language.inspection.api.resource.SourceFile;
+import org.e2immu.language.inspection.resource.SourceFileTrie;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSourceFileTrie {
+
+    private static SourceFileTrie.Origin jar(String name) {
+        return path -> new SourceFile(name, URI.create("jar:file:/" + name + "!/" + String.join("/", path)),
+                null, null);
+    }
+
+    @Test
+    public void testFindByName() {
+        SourceFileTrie trie = new SourceFileTrie();
+        trie.add(new String[]{"java", "util", "Map.class"}, jar("rt"));
+        trie.add(new String[]{"java", "util", "Map$Entry.class"}, jar("rt"));
+        trie.add(new String[]{"java", "util", "List.class"}, jar("rt"));
+
+        SourceFile map = trie.findByName("java.util.Map", ".class");
+        assertEquals("java/util/Map.class", map.path());
+        assertEquals("jar:file:/rt!/java/util/Map.class", map.uri().toString());
+        assertSame(map, trie.findByName("java.util.Map", ".class"));
+
+        SourceFile entry = trie.findByName("java.util.Map$Entry", ".class");
+        assertEquals("java/util/Map$Entry.class", entry.path());
+        assertSame(entry, trie.findByName("java.util.Map.Entry", ".class"));
+        assertNull(trie.findByName("java.util.Set", ".class"));
+        assertNull(trie.findByName("java.util.Map", ".java"));
+
+        List<SourceFile> primary = trie.primaryEntriesInPackage("java.util", ".class");
+        assertEquals("[java/util/List.class, java/util/Map.class]",
+                primary.stream().map(SourceFile::path).toList().toString());
+        assertSame(map, primary.get(1));
+    }
+
+    @Test
+    public void testShortestPackageWins() {
+        SourceFileTrie trie = new SourceFileTrie();
+        trie.add(new String[]{"a", "b", "C", "D.class"}, jar("j1"));
+        trie.add(new String[]{"a", "b", "C$D.class"}, jar("j2"));
+        assertEquals("a/b/C$D.class", trie.findByName("a.b.C.D", ".class").path());
+        assertEquals("a/b/C$D.class", trie.findByName("a.b.C$D", ".class").path());
+        assertTrue(trie.containsPackage("a.b.C", ".class"));
+        assertEquals("a/b/C/D.class", trie.primaryEntriesInPackage("a.b.C", ".class").getFirst().path());
+    }
+
+    /*
+    a node goes from no origin, to a single origin, to an array of origins which grows
+     */
+    @Test
+    public void testMultipleOrigins() {
+        SourceFileTrie trie = new SourceFileTrie();
+        String[] path = {"a", "b", "C.class"};
+        assertNull(trie.get(path));
+        assertNull(trie.getFirst(path));
+
+        trie.add(path, jar("j1"));
+        assertEquals(List.of("j1"), names(trie.get(path)));
+
+        trie.add(path, jar("j2"));
+        assertEquals(List.of("j1", "j2"), names(trie.get(path)));
+
+        trie.add(path, jar("j3"));
+        assertEquals(List.of("j1", "j2", "j3"), names(trie.get(path)));
+        assertEquals("j1", trie.getFirst(path).path());
+        assertEquals("jar:file:/j1!/a/b/C.class", trie.findByName("a.b.C", ".class").uri().toString());
+
+        List<List<String>> visited = new ArrayList<>();
+        trie.visit(new String[]{"a"}, (_, list) -> visited.add(names(list)));
+        assertEquals(List.of(List.of("j1", "j2", "j3")), visited);
+
+        // appending another trie keeps the existing origins first, and goes from single to array as well
+        SourceFileTrie other = new SourceFileTrie();
+        other.add(path, jar("j4"));
+        other.add(new String[]{"a", "b", "D.class"}, jar("j4"));
+        SourceFileTrie single = new SourceFileTrie();
+        single.add(path, jar("j0"));
+        single.addAll(other);
+        single.addAll(trie);
+        assertEquals(List.of("j0", "j4", "j1", "j2", "j3"), names(single.get(path)));
+        assertEquals(List.of("j4"), names(single.get(new String[]{"a", "b", "D.class"})));
+        assertEquals("jar:file:/j0!/a/b/C.class", single.findByName("a.b.C", ".class").uri().toString());
+    }
+
+    private static List<String> names(List<SourceFile> sourceFiles) {
+        return sourceFiles.stream().map(SourceFile::path).toList();
+    }
+}
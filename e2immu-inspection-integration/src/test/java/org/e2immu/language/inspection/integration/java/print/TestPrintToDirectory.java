@@ -0,0 +1,54 @@
+package org.e2immu.language.inspection.integration.java.print;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.integration.java.CommonTest;
+import org.intellij.lang.annotations.Language;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestPrintToDirectory extends CommonTest {
+
+    @Language("java")
+    private static final String INPUT1 = """
+            package a.b;
+            import java.util.List;
+            class X {
+                List<String> list;
+            }
+            """;
+
+    @Language("java")
+    private static final String INPUT2 = """
+            package c;
+            class Y {
+                int i;
+            }
+            """;
+
+    @Test
+    public void test(@TempDir Path root) throws IOException {
+        TypeInfo X = javaInspector.parse(INPUT1);
+        TypeInfo Y = javaInspector.parse(INPUT2);
+
+        JavaInspector.PrintSummary summary = javaInspector.print2(List.of(X, Y), root, 2);
+        assertEquals(2, summary.types());
+
+        Path x = root.resolve("a/b/X.java");
+        Path y = root.resolve("c/Y.java");
+        assertEquals(javaInspector.print2(X), Files.readString(x, StandardCharsets.UTF_8));
+        assertEquals(javaInspector.print2(Y), Files.readString(y, StandardCharsets.UTF_8));
+        assertEquals(Files.size(x) + Files.size(y), summary.bytes());
+
+        assertThrows(IllegalArgumentException.class, () -> javaInspector.print2(List.of(X), root, 0));
+    }
+}
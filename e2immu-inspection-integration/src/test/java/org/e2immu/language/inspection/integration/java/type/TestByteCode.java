@@ -4,11 +4,15 @@ import org.e2immu.language.cst.api.info.MethodInfo;
 import org.e2immu.language.cst.api.info.TypeInfo;
 import org.e2immu.language.cst.api.info.TypeParameter;
 import org.e2immu.language.inspection.api.resource.CompiledTypesManager;
+import org.e2immu.language.inspection.impl.parser.MemberIndex;
+import org.e2immu.language.inspection.api.resource.Resources;
+import org.e2immu.language.inspection.api.resource.SourceFile;
 import org.e2immu.language.inspection.integration.java.CommonTest;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.web.servlet.setup.AbstractMockMvcBuilder;
 
 import java.io.FileOutputStream;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -80,5 +84,34 @@ public class TestByteCode extends CommonTest {
         assertTrue(ct.packageContainsTypes("java.util"));
         assertTrue(ct.packageContainsTypes("java.util.function"));
         assertFalse(ct.packageContainsTypes("java.utility"));
+        assertFalse(ct.packageContainsTypes("java"));
+    }
+
+    @Test
+    public void testPackageIndex() {
+        Resources classPath = javaInspector.compiledTypesManager().classPath();
+        assertTrue(classPath.packages(".class").contains("java.util.concurrent"));
+        List<SourceFile> inFunction = classPath.primaryTypesInPackage("java.util.function", ".class");
+        assertEquals("java/util/function/BiConsumer.class", inFunction.getFirst().path());
+        assertTrue(inFunction.stream().noneMatch(sf -> sf.path().contains("$")));
+        assertTrue(classPath.primaryTypesInPackage("java.utility", ".class").isEmpty());
+    }
+
+    @Test
+    public void testMemberIndex() {
+        TypeInfo collectors = javaInspector.compiledTypesManager().getOrLoad(Collectors.class);
+        javaInspector.compiledTypesManager().ensureInspection(collectors);
+        MemberIndex memberIndex = new MemberIndex();
+        List<MethodInfo> toMap = memberIndex.methods(collectors, "toMap");
+        assertEquals(collectors.methodStream().filter(m -> "toMap".equals(m.name())).toList(), toMap);
+        assertEquals(3, toMap.size());
+        assertSame(toMap, memberIndex.methods(collectors, "toMap"));
+        assertTrue(memberIndex.methods(collectors, "doesNotExist").isEmpty());
+        assertEquals(1, memberIndex.size());
+
+        TypeInfo integer = javaInspector.compiledTypesManager().getOrLoad(Integer.class);
+        javaInspector.compiledTypesManager().ensureInspection(integer);
+        assertSame(integer.getFieldByName("MAX_VALUE", true), memberIndex.field(integer, "MAX_VALUE"));
+        assertNull(memberIndex.field(integer, "doesNotExist"));
     }
 }
@@ -0,0 +1,100 @@
+package org.e2immu.language.inspection.integration.java.type;
+
+import org.e2immu.bytecode.java.asm.ByteCodeInspectorImpl;
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.cst.api.runtime.Runtime;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.integration.RuntimeWithCompiledTypesManager;
+import org.e2immu.language.inspection.resource.CompiledTypesManagerImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Many threads load overlapping type hierarchies, each in a different order, into the same compiled types manager.
+Every type must be built exactly once, and every thread must see the same, fully inspected, type object.
+ */
+public class TestConcurrentTypeLoading {
+
+    private static final int THREADS = 8;
+
+    private static final List<String> TYPES = List.of("java.util.ArrayList", "java.util.LinkedList",
+            "java.util.HashMap", "java.util.TreeMap", "java.util.LinkedHashMap", "java.util.TreeSet",
+            "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.ConcurrentSkipListMap",
+            "java.util.concurrent.CopyOnWriteArrayList", "java.util.concurrent.LinkedBlockingDeque",
+            "java.util.stream.Collectors", "java.util.stream.IntStream", "java.io.BufferedReader",
+            "java.io.PrintStream", "java.nio.file.Files", "java.time.LocalDateTime",
+            // nested types, requested while their primary type may be being loaded by another thread
+            "java.util.Map.Entry", "java.util.AbstractMap.SimpleEntry", "java.util.concurrent.ConcurrentHashMap.KeySetView");
+
+    private static class CountingCompiledTypesManager extends CompiledTypesManagerImpl {
+        final Map<String, AtomicInteger> added = new ConcurrentHashMap<>();
+
+        CountingCompiledTypesManager(CompiledTypesManagerImpl other) {
+            super(other.classPath());
+        }
+
+        @Override
+        public void add(TypeInfo typeInfo) {
+            added.computeIfAbsent(typeInfo.fullyQualifiedName(), _ -> new AtomicInteger()).incrementAndGet();
+            super.add(typeInfo);
+        }
+    }
+
+    @Test
+    public void test() throws IOException, InterruptedException, ExecutionException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .build();
+        JavaInspector javaInspector = new JavaInspectorImpl();
+        assertTrue(javaInspector.initialize(inputConfiguration).isEmpty());
+
+        // a fresh manager on the same class path, with nothing loaded yet
+        CountingCompiledTypesManager ctm = new CountingCompiledTypesManager(
+                (CompiledTypesManagerImpl) javaInspector.compiledTypesManager());
+        Runtime runtime = new RuntimeWithCompiledTypesManager(ctm);
+        ctm.setByteCodeInspector(new ByteCodeInspectorImpl(runtime, ctm, false, false));
+
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Map<String, TypeInfo>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                List<String> order = new ArrayList<>(TYPES);
+                Collections.shuffle(order, new Random(t));
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    Map<String, TypeInfo> seen = new HashMap<>();
+                    for (String fqn : order) {
+                        TypeInfo typeInfo = ctm.getOrLoad(fqn, null);
+                        assertNotNull(typeInfo, fqn);
+                        ctm.ensureInspection(typeInfo);
+                        seen.put(fqn, typeInfo);
+                    }
+                    return seen;
+                }));
+            }
+        }
+        for (Future<Map<String, TypeInfo>> future : futures) {
+            for (Map.Entry<String, TypeInfo> entry : future.get().entrySet()) {
+                assertSame(ctm.get(entry.getKey(), null), entry.getValue(), entry.getKey());
+                assertTrue(entry.getValue().hasBeenInspected(), entry.getKey());
+            }
+        }
+        List<String> builtMoreThanOnce = ctm.added.entrySet().stream()
+                .filter(e -> e.getValue().get() != 1).map(Map.Entry::getKey).sorted().toList();
+        assertEquals(List.of(), builtMoreThanOnce);
+        List<TypeInfo> loaded = ctm.typesLoaded();
+        assertEquals(ctm.added.size(), loaded.size());
+        for (TypeInfo typeInfo : loaded) {
+            assertSame(typeInfo, ctm.get(typeInfo.fullyQualifiedName(), null));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.e2immu.language.inspection.integration.java.type;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.CompiledTypesManager;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+16 readers look up types in the registry, while another thread loads complete packages into it.
+A reader must always find a type it has seen before, and always the same object; afterward, the package
+index must agree with the map of all loaded types.
+ */
+public class TestConcurrentTypeLookup {
+    private static final int READERS = 16;
+    private static final List<String> PACKAGES = List.of("java.util.concurrent", "java.util.stream",
+            "java.util.function", "java.io", "java.nio.file", "java.time");
+
+    @Test
+    public void test() throws Exception {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .build();
+        JavaInspector javaInspector = new JavaInspectorImpl();
+        List<JavaInspector.InitializationProblem> problems = javaInspector.initialize(inputConfiguration);
+        assertTrue(problems.isEmpty(), "Problems: " + problems);
+        CompiledTypesManager ctm = javaInspector.compiledTypesManager();
+
+        Collection<TypeInfo> inJavaUtil = ctm.primaryTypesInPackageEnsureLoaded("java.util", Set.of());
+        assertTrue(inJavaUtil.stream().anyMatch(ti -> "java.util.ArrayList".equals(ti.fullyQualifiedName())));
+        // the names that are known from the start, and the names that the writer will add
+        List<String> fqns = new ArrayList<>(ctm.typesLoaded().stream().map(TypeInfo::fullyQualifiedName).toList());
+        List<String> added = List.of("java.util.concurrent.ConcurrentHashMap", "java.util.stream.Collectors",
+                "java.util.function.BiFunction", "java.io.BufferedReader", "java.nio.file.Files",
+                "java.time.LocalDate");
+        fqns.addAll(added);
+
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS + 1)) {
+            Future<?> writer = executor.submit(() -> {
+                start.await();
+                PACKAGES.forEach(p -> assertFalse(ctm.primaryTypesInPackageEnsureLoaded(p, Set.of()).isEmpty(), p));
+                return null;
+            });
+            List<Future<Map<String, TypeInfo>>> readers = IntStream.range(0, READERS)
+                    .mapToObj(_ -> executor.submit(() -> {
+                        start.await();
+                        Map<String, TypeInfo> seen = new HashMap<>();
+                        while (!writer.isDone()) {
+                            for (String fqn : fqns) {
+                                TypeInfo typeInfo = ctm.get(fqn, null);
+                                TypeInfo before = seen.get(fqn);
+                                if (before != null) {
+                                    assertSame(before, typeInfo, fqn);
+                                } else if (typeInfo != null) {
+                                    assertEquals(fqn, typeInfo.fullyQualifiedName());
+                                    seen.put(fqn, typeInfo);
+                                }
+                            }
+                        }
+                        return seen;
+                    })).toList();
+            start.countDown();
+            writer.get();
+            for (Future<Map<String, TypeInfo>> reader : readers) {
+                for (Map.Entry<String, TypeInfo> entry : reader.get().entrySet()) {
+                    assertSame(ctm.get(entry.getKey(), null), entry.getValue(), entry.getKey());
+                }
+            }
+        }
+        for (String fqn : added) {
+            assertNotNull(ctm.get(fqn, null), fqn);
+        }
+        for (TypeInfo typeInfo : ctm.typesLoaded()) {
+            assertSame(typeInfo, ctm.get(typeInfo.fullyQualifiedName(), null));
+            if (typeInfo.isPrimaryType()) {
+                String packageName = typeInfo.packageName();
+                assertTrue(ctm.primaryTypesInPackageEnsureLoaded(packageName, Set.of()).contains(typeInfo),
+                        typeInfo.fullyQualifiedName());
+            }
+        }
+    }
+}
@@ -375,4 +375,42 @@ public class TestFullyQualified extends CommonTest {
         }
     }
 
+    /*
+    The same qualified names, in different scopes: the memoized resolution must give the same type everywhere.
+     */
+    @Language("java")
+    public static final String INPUT5 = """
+            package a.b;
+            import java.util.Map;
+            class X {
+                java.util.Map.Entry<String, Integer> e1;
+                Map.Entry<String, Integer> e2;
+                static class Y {
+                    java.util.Map.Entry<String, Integer> e3;
+                    Map.Entry<String, Integer> e4;
+                    X.Y y1;
+                    a.b.X.Y y2;
+                }
+                int method(java.util.Map.Entry<String, Integer> e5) {
+                    Map.Entry<String, Integer> e6 = e5;
+                    return e6.getValue();
+                }
+            }
+            """;
+
+    @Test
+    public void test5() {
+        TypeInfo X = javaInspector.parse(INPUT5, JavaInspectorImpl.DETAILED_SOURCES);
+        TypeInfo entry = X.getFieldByName("e1", true).type().typeInfo();
+        assertEquals("java.util.Map.Entry", entry.fullyQualifiedName());
+        assertSame(entry, X.getFieldByName("e2", true).type().typeInfo());
+        TypeInfo Y = X.findSubType("Y");
+        assertSame(entry, Y.getFieldByName("e3", true).type().typeInfo());
+        assertSame(entry, Y.getFieldByName("e4", true).type().typeInfo());
+        assertSame(Y, Y.getFieldByName("y1", true).type().typeInfo());
+        assertSame(Y, Y.getFieldByName("y2", true).type().typeInfo());
+        MethodInfo method = X.findUniqueMethod("method", 1);
+        assertSame(entry, method.parameters().getFirst().parameterizedType().typeInfo());
+    }
+
 }
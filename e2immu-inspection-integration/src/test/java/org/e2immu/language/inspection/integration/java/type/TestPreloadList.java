@@ -0,0 +1,55 @@
+package org.e2immu.language.inspection.integration.java.type;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.e2immu.language.inspection.resource.PreloadList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPreloadList {
+
+    @Test
+    public void testFormat(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("preload.txt");
+        PreloadList.write(file, List.of("java.util.List", "java.io.File", "java.util.ArrayList"));
+        assertEquals("java.io File\njava.util ArrayList List\n", Files.readString(file));
+        assertEquals("[java.io.File, java.util.ArrayList, java.util.List]", PreloadList.read(file).toString());
+    }
+
+    @Test
+    public void testRecordAndReplay(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("preload.txt");
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .build();
+
+        JavaInspectorImpl recording = new JavaInspectorImpl();
+        recording.setPreloadList(file);
+        recording.initialize(inputConfiguration);
+        recording.parse("""
+                package a.b;
+                import java.util.TreeMap;
+                class C {
+                    TreeMap<String, Integer> map = new TreeMap<>();
+                }
+                """);
+        recording.writePreloadList();
+        assertTrue(PreloadList.read(file).contains("java.util.TreeMap"));
+
+        JavaInspectorImpl replaying = new JavaInspectorImpl();
+        replaying.setPreloadList(file);
+        replaying.initialize(inputConfiguration);
+        TypeInfo treeMap = replaying.compiledTypesManager().get("java.util.TreeMap", null);
+        assertNotNull(treeMap);
+        assertTrue(treeMap.hasBeenInspected());
+    }
+}
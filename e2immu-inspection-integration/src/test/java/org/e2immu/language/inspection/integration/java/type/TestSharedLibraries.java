@@ -0,0 +1,149 @@
+package org.e2immu.language.inspection.integration.java.type;
+
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.integration.JavaInspector;
+import org.e2immu.language.inspection.api.resource.InputConfiguration;
+import org.e2immu.language.inspection.api.resource.Resources;
+import org.e2immu.language.inspection.api.resource.SourceFile;
+import org.e2immu.language.inspection.integration.JavaInspectorImpl;
+import org.e2immu.language.inspection.resource.InputConfigurationImpl;
+import org.e2immu.language.inspection.resource.LayeredResources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.e2immu.language.inspection.integration.JavaInspectorImpl.JAR_WITH_PATH_PREFIX;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSharedLibraries {
+
+    @Test
+    public void test() throws IOException {
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .build();
+        JavaInspectorImpl shared = new JavaInspectorImpl();
+        assertTrue(shared.initialize(inputConfiguration).isEmpty());
+
+        JavaInspectorImpl project1 = new JavaInspectorImpl();
+        project1.setSharedLibraries(shared);
+        assertTrue(project1.initialize(inputConfiguration).isEmpty());
+        TypeInfo c1 = project1.parse("""
+                package a.b;
+                import java.util.ArrayList;
+                class C {
+                    ArrayList<String> list = new ArrayList<>();
+                }
+                """);
+        assertEquals("a.b.C", c1.fullyQualifiedName());
+
+        JavaInspectorImpl project2 = new JavaInspectorImpl();
+        project2.setSharedLibraries(shared);
+        assertTrue(project2.initialize(inputConfiguration).isEmpty());
+        TypeInfo c2 = project2.parse("""
+                package a.b;
+                import java.util.ArrayList;
+                class C {
+                    ArrayList<Integer> list = new ArrayList<>();
+                }
+                """);
+        assertNotSame(c1, c2);
+
+        TypeInfo arrayList = shared.compiledTypesManager().get("java.util.ArrayList", null);
+        assertNotNull(arrayList);
+        assertSame(arrayList, project1.compiledTypesManager().get("java.util.ArrayList", null));
+        assertSame(arrayList, project2.compiledTypesManager().get("java.util.ArrayList", null));
+    }
+
+    @Test
+    public void testOwnPartsOnly() throws IOException {
+        InputConfiguration sharedConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .build();
+        JavaInspectorImpl shared = new JavaInspectorImpl();
+        assertTrue(shared.initialize(sharedConfiguration).isEmpty());
+
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/slf4j")
+                .build();
+        JavaInspectorImpl project = new JavaInspectorImpl();
+        project.setSharedLibraries(shared);
+        assertTrue(project.initialize(inputConfiguration).isEmpty());
+
+        LayeredResources classPath = assertInstanceOf(LayeredResources.class,
+                project.compiledTypesManager().classPath());
+        Resources own = classPath.own();
+        assertSame(shared.compiledTypesManager().classPath(), classPath.shared());
+
+        // the JDK is only indexed in the shared layer
+        assertNull(own.fqnToPath("java.util.ArrayList", ".class"));
+        assertFalse(own.containsPackage("java.util", ".class"));
+        assertNotNull(own.fqnToPath("org.slf4j.Logger", ".class"));
+
+        // lookups see both layers
+        assertEquals("java/util/ArrayList.class", classPath.fqnToPath("java.util.ArrayList", ".class").path());
+        assertEquals("org/slf4j/Logger.class", classPath.fqnToPath("org.slf4j.Logger", ".class").path());
+        assertTrue(classPath.containsPackage("java.util", ".class"));
+        assertTrue(classPath.containsPackage("org.slf4j", ".class"));
+        assertTrue(classPath.packages(".class").containsAll(List.of("java.util", "org.slf4j")));
+        assertEquals(shared.compiledTypesManager().classPath().primaryTypesInPackage("java.util", ".class")
+                        .stream().map(SourceFile::path).toList(),
+                classPath.primaryTypesInPackage("java.util", ".class").stream().map(SourceFile::path).toList());
+        byte[] bytes = classPath.loadBytes("org/slf4j/Logger.class");
+        assertNotNull(bytes);
+        assertEquals(ByteBuffer.wrap(bytes), classPath.loadByteBuffer("org/slf4j/Logger.class"));
+        assertNotNull(classPath.loadBytes("java/util/ArrayList.class"));
+
+        TypeInfo logger = project.compiledTypesManager().getOrLoad("org.slf4j.Logger", null);
+        assertNotNull(logger);
+        assertNull(shared.compiledTypesManager().get("org.slf4j.Logger", null));
+
+        // closing the project leaves the shared class path open
+        project.close();
+        assertNotNull(shared.compiledTypesManager().classPath().loadBytes("java/util/ArrayList.class"));
+        shared.close();
+    }
+
+    /*
+    A class path directory of the project contains a copy of a class of the shared libraries.
+     */
+    @Test
+    public void testOverlap(@TempDir Path directory) throws IOException {
+        InputConfiguration sharedConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/slf4j")
+                .build();
+        JavaInspectorImpl shared = new JavaInspectorImpl();
+        assertTrue(shared.initialize(sharedConfiguration).isEmpty());
+        byte[] bytes = shared.compiledTypesManager().classPath().loadBytes("org/slf4j/Logger.class");
+        Files.write(Files.createDirectories(directory.resolve("org/slf4j")).resolve("Logger.class"), bytes);
+
+        InputConfiguration inputConfiguration = new InputConfigurationImpl.Builder()
+                .addClassPath(InputConfigurationImpl.DEFAULT_MODULES)
+                .addClassPath(JAR_WITH_PATH_PREFIX + "org/slf4j")
+                .addClassPath(directory.toString())
+                .build();
+        JavaInspectorImpl project = new JavaInspectorImpl();
+        project.setSharedLibraries(shared);
+        List<JavaInspector.InitializationProblem> problems = project.initialize(inputConfiguration);
+        assertEquals(1, problems.size());
+        assertTrue(problems.getFirst().errorMsg().contains("Logger.class shadows a type of the shared libraries"),
+                problems.getFirst().errorMsg());
+
+        // not shared: the project has a class path of its own, and loads its own types
+        assertFalse(project.compiledTypesManager().classPath() instanceof LayeredResources);
+        TypeInfo logger = project.compiledTypesManager().getOrLoad("org.slf4j.Logger", null);
+        assertNotNull(logger);
+        assertNotSame(shared.compiledTypesManager().getOrLoad("org.slf4j.Logger", null), logger);
+        assertNotSame(shared.compiledTypesManager().get("java.lang.String", null),
+                project.compiledTypesManager().get("java.lang.String", null));
+        project.close();
+        shared.close();
+    }
+}
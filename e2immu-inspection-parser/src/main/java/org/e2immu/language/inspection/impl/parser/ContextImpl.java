@@ -34,8 +34,9 @@ public class ContextImpl implements Context {
                                  Summary summary,
                                  Resolver resolver,
                                  TypeContext typeContext,
-                                 boolean detailedSources) {
-        MethodResolutionImpl methodResolution = new MethodResolutionImpl(runtime);
+                                 boolean detailedSources,
+                                 MemberIndex memberIndex) {
+        MethodResolutionImpl methodResolution = new MethodResolutionImpl(runtime, memberIndex);
         return new ContextImpl(new Data(runtime, summary, methodResolution),
                 null, null, resolver,
                 typeContext, new VariableContextImpl(), null,
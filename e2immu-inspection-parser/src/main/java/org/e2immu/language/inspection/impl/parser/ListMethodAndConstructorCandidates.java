@@ -13,6 +13,7 @@ import org.e2immu.language.cst.api.variable.Variable;
 import org.e2immu.language.inspection.api.parser.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /*
@@ -22,14 +23,39 @@ for method/constructor resolution. Further resolution will only restrict based o
 public class ListMethodAndConstructorCandidates {
     private final Runtime runtime;
     private final StaticImportMap staticImportMap;
+    private final CandidateCache candidateCache;
+    private final MemberIndex memberIndex;
 
     public enum ScopeNature {
         ABSENT, STATIC, INSTANCE,
     }
 
-    public ListMethodAndConstructorCandidates(Runtime runtime, StaticImportMap staticImportMap) {
+    /*
+    The candidates of a method call on a library type only depend on the type, the method name, the number of
+    arguments and the nature of the scope; the type parameter map of the call site is applied afterwards.
+    Shared between all compilation units of a parse run; library types do not change during that run.
+     */
+    public static class CandidateCache {
+        private record Key(TypeInfo typeInfo, String methodName, int parametersPresented,
+                           boolean decrementWhenNotStatic, ScopeNature scopeNature) {
+        }
+
+        private record Candidate(MethodInfo methodInfo, Map<NamedType, ParameterizedType> pathTypeMap, int score) {
+        }
+
+        private final Map<Key, List<Candidate>> map = new ConcurrentHashMap<>();
+
+        public int size() {
+            return map.size();
+        }
+    }
+
+    public ListMethodAndConstructorCandidates(Runtime runtime, StaticImportMap staticImportMap,
+                                              CandidateCache candidateCache, MemberIndex memberIndex) {
         this.staticImportMap = staticImportMap;
         this.runtime = runtime;
+        this.candidateCache = candidateCache;
+        this.memberIndex = memberIndex;
     }
 
     public static final int IGNORE_PARAMETER_NUMBERS = -1;
@@ -56,10 +82,72 @@ public class ListMethodAndConstructorCandidates {
                                                     Map<NamedType, ParameterizedType> typeMap,
                                                     Map<MethodTypeParameterMap, Integer> result,
                                                     ScopeNature scopeNature) {
+        if (candidateCache != null
+            && staticImportMap.staticAsterisk().isEmpty()
+            && staticImportMap.getStaticMemberToTypeInfo(methodName) == null) {
+            List<TypeInfo> types = extractTypeInfo(typeOfObject, typeMap);
+            if (types.size() == 1 && isLibraryType(types.getFirst())) {
+                CandidateCache.Key key = new CandidateCache.Key(types.getFirst(), methodName, parametersPresented,
+                        decrementWhenNotStatic, scopeNature);
+                List<CandidateCache.Candidate> candidates = candidateCache.map.get(key);
+                if (candidates == null) {
+                    candidates = computeCandidates(key);
+                    if (candidates == null) {
+                        recursivelyResolveOverloadedMethods(typeOfObject, methodName, parametersPresented,
+                                decrementWhenNotStatic, typeMap, result, new HashSet<>(), new HashSet<>(), false,
+                                scopeNature, 0);
+                        return;
+                    }
+                    List<CandidateCache.Candidate> prev = candidateCache.map.putIfAbsent(key, candidates);
+                    if (prev != null) candidates = prev;
+                }
+                for (CandidateCache.Candidate candidate : candidates) {
+                    Map<NamedType, ParameterizedType> concreteTypes;
+                    if (candidate.pathTypeMap.isEmpty()) {
+                        concreteTypes = typeMap;
+                    } else {
+                        concreteTypes = new HashMap<>(typeMap);
+                        concreteTypes.putAll(candidate.pathTypeMap);
+                    }
+                    MethodTypeParameterMap mt = new MethodTypeParameterMapImpl(candidate.methodInfo, concreteTypes);
+                    result.merge(mt, candidate.score, Integer::min);
+                }
+                return;
+            }
+        }
         recursivelyResolveOverloadedMethods(typeOfObject, methodName, parametersPresented, decrementWhenNotStatic,
                 typeMap, result, new HashSet<>(), new HashSet<>(), false, scopeNature, 0);
     }
 
+    private static boolean isLibraryType(TypeInfo typeInfo) {
+        return typeInfo.hasBeenInspected()
+               && typeInfo.compilationUnit().sourceSet() != null
+               && typeInfo.compilationUnit().sourceSet().externalLibrary();
+    }
+
+    /*
+    Walk the hierarchy starting from an empty type parameter map, so that the maps we record are exactly those
+    accumulated along the path to each candidate. Returns null when part of the hierarchy is not yet inspected:
+    we don't want to cache an incomplete list.
+     */
+    private List<CandidateCache.Candidate> computeCandidates(CandidateCache.Key key) {
+        Map<MethodTypeParameterMap, Integer> recording = new LinkedHashMap<>();
+        Set<TypeInfo> visited = new HashSet<>();
+        Set<TypeInfo> visitedStatic = new HashSet<>();
+        visited.add(key.typeInfo);
+        visitedStatic.add(key.typeInfo);
+        resolveOverloadedMethodsSingleType(key.typeInfo, false, key.scopeNature, key.methodName,
+                key.parametersPresented, key.decrementWhenNotStatic, Map.of(), recording, visited, visitedStatic, 2);
+        if (visited.stream().anyMatch(ti -> !isLibraryType(ti))
+            || visitedStatic.stream().anyMatch(ti -> !isLibraryType(ti))) {
+            return null;
+        }
+        return recording.entrySet().stream()
+                .map(e -> new CandidateCache.Candidate(e.getKey().methodInfo(), e.getKey().concreteTypes(),
+                        e.getValue()))
+                .toList();
+    }
+
     private void recursivelyResolveOverloadedMethods(ParameterizedType typeOfObject,
                                                      String methodName,
                                                      int parametersPresented,
@@ -116,8 +204,7 @@ public class ListMethodAndConstructorCandidates {
                                                     Set<TypeInfo> visited,
                                                     Set<TypeInfo> visitedStatic,
                                                     int distance) {
-        typeInfo.methodStream()
-                .filter(m -> m.name().equals(methodName))
+        memberIndex.methods(typeInfo, methodName).stream()
                 .filter(m -> !staticOnly || m.isStatic())
                 .filter(m -> parametersPresented == IGNORE_PARAMETER_NUMBERS ||
                              compatibleNumberOfParameters(m, parametersPresented +
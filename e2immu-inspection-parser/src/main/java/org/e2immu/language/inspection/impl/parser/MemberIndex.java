@@ -0,0 +1,60 @@
+package org.e2immu.language.inspection.impl.parser;
+
+import org.e2immu.language.cst.api.info.FieldInfo;
+import org.e2immu.language.cst.api.info.MethodInfo;
+import org.e2immu.language.cst.api.info.TypeInfo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Index of the methods and fields of a type by name, replacing linear scans over the members of large types
+(Collectors, generated classes with hundreds of methods) during method and static import resolution.
+
+Only types that have been inspected are indexed: their members do not change anymore. For the others,
+we fall back to a scan. Shared between the threads of a parse run.
+ */
+public class MemberIndex {
+
+    private record Members(Map<String, List<MethodInfo>> methods, Map<String, FieldInfo> fields) {
+    }
+
+    private final Map<TypeInfo, Members> map = new ConcurrentHashMap<>();
+
+    public List<MethodInfo> methods(TypeInfo typeInfo, String name) {
+        Members members = members(typeInfo);
+        if (members == null) {
+            return typeInfo.methodStream().filter(m -> m.name().equals(name)).toList();
+        }
+        return members.methods.getOrDefault(name, List.of());
+    }
+
+    public FieldInfo field(TypeInfo typeInfo, String name) {
+        Members members = members(typeInfo);
+        if (members == null) {
+            return typeInfo.getFieldByName(name, false);
+        }
+        return members.fields.get(name);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    private Members members(TypeInfo typeInfo) {
+        if (!typeInfo.hasBeenInspected()) return null;
+        // indexing does not load types, so computeIfAbsent cannot deadlock here
+        return map.computeIfAbsent(typeInfo, MemberIndex::index);
+    }
+
+    private static Members index(TypeInfo typeInfo) {
+        Map<String, List<MethodInfo>> methods = new HashMap<>();
+        typeInfo.methodStream().forEach(m -> methods.computeIfAbsent(m.name(), _ -> new ArrayList<>()).add(m));
+        Map<String, FieldInfo> fields = new HashMap<>();
+        for (FieldInfo fieldInfo : typeInfo.fields()) {
+            fields.putIfAbsent(fieldInfo.name(), fieldInfo);
+        }
+        methods.replaceAll((_, list) -> List.copyOf(list));
+        return new Members(Map.copyOf(methods), Map.copyOf(fields));
+    }
+}
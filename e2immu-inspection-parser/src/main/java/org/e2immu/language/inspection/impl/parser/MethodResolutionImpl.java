@@ -33,9 +33,13 @@ public class MethodResolutionImpl implements MethodResolution {
     private final GenericsHelper genericsHelper;
     private final HierarchyHelper hierarchyHelper;
     private final int notAssignable;
+    private final ListMethodAndConstructorCandidates.CandidateCache candidateCache
+            = new ListMethodAndConstructorCandidates.CandidateCache();
+    private final MemberIndex memberIndex;
 
-    public MethodResolutionImpl(Runtime runtime) {
+    public MethodResolutionImpl(Runtime runtime, MemberIndex memberIndex) {
         this.runtime = runtime;
+        this.memberIndex = memberIndex;
         this.genericsHelper = new GenericsHelperImpl(runtime);
         this.hierarchyHelper = new HierarchyHelperImpl();
         notAssignable = runtime.isNotAssignable();
@@ -50,7 +54,7 @@ public class MethodResolutionImpl implements MethodResolution {
                                                List<Object> unparsedArguments) {
         // we must create it here, because the importMap only exists once we're parsing a compilation unit
         ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime,
-                context.typeContext().importMap());
+                context.typeContext().importMap(), candidateCache, memberIndex);
         ListMethodAndConstructorCandidates.Scope scope = list
                 .computeScope(context.parseHelper(), context, index, unparsedScope, TypeParameterMap.EMPTY);
         int numArguments = unparsedArguments.size();
@@ -129,7 +133,7 @@ public class MethodResolutionImpl implements MethodResolution {
         ContextAndScope cas = determineTypeContextAndScope(contextIn, index, unparsedObject);
         Context context = cas.context;
         ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime,
-                context.typeContext().importMap());
+                context.typeContext().importMap(), candidateCache, memberIndex);
         Map<NamedType, ParameterizedType> typeMap = expectedConcreteType == null ? Map.of() :
                 expectedConcreteType.initialTypeParameterMap();
         TypeParameterMap typeParameterMap = new TypeParameterMap(typeMap);
@@ -250,7 +254,7 @@ public class MethodResolutionImpl implements MethodResolution {
                                     List<Object> unparsedArguments) {
         // we must create it here, because the importMap only exists once we're parsing a compilation unit
         ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime,
-                context.typeContext().importMap());
+                context.typeContext().importMap(), candidateCache, memberIndex);
         ListMethodAndConstructorCandidates.Scope scope = list
                 .computeScope(context.parseHelper(), context, index, unparsedScope, TypeParameterMap.EMPTY);
         int numArguments = unparsedArguments.size();
@@ -1438,7 +1442,7 @@ public class MethodResolutionImpl implements MethodResolution {
                                                                                     int numParametersInForwardSam,
                                                                                     boolean scopeIsAType) {
         ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime,
-                context.typeContext().importMap());
+                context.typeContext().importMap(), candidateCache, memberIndex);
         Map<NamedType, ParameterizedType> typeMap = scopeType.initialTypeParameterMap();
 
         Map<MethodTypeParameterMap, Integer> methodCandidates;
@@ -1463,7 +1467,8 @@ public class MethodResolutionImpl implements MethodResolution {
         boolean constructor = "new".equals(methodName);
 
         Map<MethodTypeParameterMap, Integer> methodCandidates;
-        ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime, context.typeContext().importMap());
+        ListMethodAndConstructorCandidates list = new ListMethodAndConstructorCandidates(runtime,
+                context.typeContext().importMap(), candidateCache, memberIndex);
         if (constructor) {
             if (parameterizedType.arrays() > 0) {
                 Expression e = arrayConstruction(comments, source, parameterizedType);
@@ -15,12 +15,12 @@ import org.e2immu.language.inspection.api.parser.SourceTypeMap;
 import org.e2immu.language.inspection.api.parser.StaticImportMap;
 import org.e2immu.language.inspection.api.parser.TypeContext;
 import org.e2immu.language.inspection.api.resource.CompiledTypesManager;
-import org.e2immu.language.inspection.api.resource.Resources;
 import org.e2immu.language.inspection.api.resource.SourceFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -30,19 +30,63 @@ public class TypeContextImpl implements TypeContext {
     private record StubTypeMap(Map<String, TypeInfo> map) {
     }
 
+    /*
+    Many compilation units share the same import statements. Their resolution is cached, per source set, for
+    the lifetime of the root type context, i.e., one parse. The result of a non-static import is the list of types
+    to be added to the context; that of a static import is the list of changes to the static import map.
+     */
+    private record ImportKey(SourceSet sourceSet, String importString) {
+    }
+
+    private record ResolvedImport(List<NamedTypePriority> namedTypes, String asteriskPackage) {
+    }
+
+    private record StaticMember(TypeInfo typeInfo, String member) {
+    }
+
+    private record ResolvedStaticImport(TypeInfo asteriskType, List<StaticMember> members) {
+    }
+
+    private record ImportCache(Map<ImportKey, ResolvedImport> nonStatic,
+                               Map<ImportKey, ResolvedStaticImport> statics) {
+        ImportCache() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    /*
+    Per compilation unit, the parts of qualified name resolution that do not depend on the nested type context:
+    the lookup of a fully qualified name (including misses), and the sub-type found in a type's hierarchy.
+    The latter only holds results that were found: while parsing, hierarchies may still be incomplete.
+    Method bodies of the same compilation unit may be resolved concurrently.
+     */
+    private record SubTypeKey(TypeInfo typeInfo, String name) {
+    }
+
+    private record QualifiedNameMemo(Map<String, Optional<TypeInfo>> fullyQualified,
+                                     Map<SubTypeKey, TypeInfo> subTypes) {
+        QualifiedNameMemo() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
     private record Data(Runtime runtime,
                         CompiledTypesManager compiledTypesManager,
                         SourceTypeMap sourceTypeMap,
                         StaticImportMap staticImportMap,
                         CompilationUnit compilationUnit,
-                        StubTypeMap stubTypeMap) {
+                        StubTypeMap stubTypeMap,
+                        ImportCache importCache,
+                        QualifiedNameMemo qualifiedNameMemo,
+                        MemberIndex memberIndex) {
 
         public boolean allowCreationOfStubTypes() {
             return stubTypeMap != null;
         }
 
         Data withCompilationUnit(CompilationUnit cu) {
-            return new Data(runtime, compiledTypesManager, sourceTypeMap, new StaticImportMapImpl(), cu, stubTypeMap);
+            return new Data(runtime, compiledTypesManager, sourceTypeMap, new StaticImportMapImpl(), cu, stubTypeMap,
+                    importCache, new QualifiedNameMemo(), memberIndex);
         }
     }
 
@@ -53,14 +97,21 @@ public class TypeContextImpl implements TypeContext {
     }
 
     private final Map<String, NamedTypePriority> map = new HashMap<>();
+    /*
+    packages of the class path imported with '*'; their types are only loaded when a simple name resolves to them,
+    with priority IMPORT_ASTERISK_PACKAGE_PRIORITY. In case of ambiguity, the first package wins.
+     */
+    private final List<String> asteriskPackages = new ArrayList<>();
 
     /*
     the packageInfo should already contain all the types of the current package
+    the member index is that of the parse run, shared with method resolution
      */
     public TypeContextImpl(Runtime runtime, CompiledTypesManager compiledTypesManager, SourceTypeMap sourceTypeMap,
-                           boolean allowCreationOfStubTypes) {
+                           boolean allowCreationOfStubTypes, MemberIndex memberIndex) {
         this(null, new Data(runtime, compiledTypesManager, sourceTypeMap, null,
-                null, allowCreationOfStubTypes ? new StubTypeMap(new HashMap<>()) : null));
+                null, allowCreationOfStubTypes ? new StubTypeMap(new HashMap<>()) : null, new ImportCache(),
+                new QualifiedNameMemo(), memberIndex));
     }
 
     private TypeContextImpl(TypeContextImpl parentContext, Data data) {
@@ -73,15 +124,28 @@ public class TypeContextImpl implements TypeContext {
         assert importStatement.isStatic();
 
         String fqnWithAsterisk = importStatement.importString();
+        ImportKey key = new ImportKey(sourceSet(), fqnWithAsterisk);
+        ResolvedStaticImport cached = data.importCache.statics.get(key);
+        if (cached != null) {
+            apply(cached);
+            return true;
+        }
         boolean isAsterisk = fqnWithAsterisk.endsWith(".*");
         String fqn = isAsterisk ? fqnWithAsterisk.substring(0, fqnWithAsterisk.length() - 2) : fqnWithAsterisk;
 
         if (isAsterisk) {
             TypeInfo typeInfo = loadTypeDoNotImport(fqn);
             LOGGER.debug("Add import static wildcard {}", typeInfo);
-            addImportStaticWildcard(typeInfo);
-            typeInfo.subTypes().forEach(st -> addImportStatic(typeInfo, st.simpleName()));
-            return traverseInterfaceHierarchy(currentCompilationUnit, typeInfo, new HashSet<>());
+            List<StaticMember> members = new ArrayList<>();
+            typeInfo.subTypes().forEach(st -> members.add(new StaticMember(typeInfo, st.simpleName())));
+            boolean done = traverseInterfaceHierarchy(currentCompilationUnit, typeInfo, new HashSet<>(), members);
+            ResolvedStaticImport resolved = new ResolvedStaticImport(typeInfo, List.copyOf(members));
+            apply(resolved);
+            // the traversal skips the current compilation unit, so the result depends on it
+            if (done && !currentCompilationUnit.equals(typeInfo.primaryType().compilationUnit())) {
+                data.importCache.statics.put(key, resolved);
+            }
+            return done;
         }
 
         int dot = fqn.lastIndexOf('.');
@@ -89,13 +153,25 @@ public class TypeContextImpl implements TypeContext {
         String member = fqn.substring(dot + 1);
         TypeInfo typeInfo = loadTypeDoNotImport(typeOrSubTypeName);
         LOGGER.debug("Add import static, type {}, member {}", typeInfo, member);
-        addImportStatic(typeInfo, member);
+        ResolvedStaticImport resolved = new ResolvedStaticImport(null, List.of(new StaticMember(typeInfo, member)));
+        apply(resolved);
+        data.importCache.statics.put(key, resolved);
         return true;
     }
 
+    private void apply(ResolvedStaticImport resolvedStaticImport) {
+        if (resolvedStaticImport.asteriskType != null) {
+            addImportStaticWildcard(resolvedStaticImport.asteriskType);
+        }
+        for (StaticMember staticMember : resolvedStaticImport.members) {
+            addImportStatic(staticMember.typeInfo, staticMember.member);
+        }
+    }
+
     private boolean traverseInterfaceHierarchy(CompilationUnit compilationUnit,
                                                TypeInfo typeInfo,
-                                               Set<TypeInfo> visited) {
+                                               Set<TypeInfo> visited,
+                                               List<StaticMember> members) {
         // note: we must ignore 'self-references', they are obviously not resolved yet
         if (visited.add(typeInfo) && !compilationUnit.equals(typeInfo.primaryType().compilationUnit())) {
             if (typeInfo.hierarchyNotYetDone()) {
@@ -108,8 +184,8 @@ public class TypeContextImpl implements TypeContext {
             // see Import4, TestImport4 and variants
             for (ParameterizedType interfaceType : typeInfo.interfacesImplemented()) {
                 interfaceType.typeInfo().subTypes()
-                        .forEach(st -> addImportStatic(interfaceType.typeInfo(), st.simpleName()));
-                if (!traverseInterfaceHierarchy(compilationUnit, interfaceType.typeInfo(), visited)) {
+                        .forEach(st -> members.add(new StaticMember(interfaceType.typeInfo(), st.simpleName())));
+                if (!traverseInterfaceHierarchy(compilationUnit, interfaceType.typeInfo(), visited, members)) {
                     // recursion
                     return false;
                 }
@@ -119,20 +195,20 @@ public class TypeContextImpl implements TypeContext {
     }
 
     /*
-    this is a rather slow method, but the result will be "cached" in the variable context, see ParseExpression
+    the result will be "cached" in the variable context, see ParseExpression
      */
     @Override
     public Variable findStaticFieldImport(String name) {
         if (data.staticImportMap != null) {
             TypeInfo typeInfo = data.staticImportMap.getStaticMemberToTypeInfo(name);
             if (typeInfo != null) {
-                FieldInfo fieldInfo = typeInfo.getFieldByName(name, false);
+                FieldInfo fieldInfo = data.memberIndex.field(typeInfo, name);
                 if (fieldInfo != null) {
                     return data.runtime.newFieldReference(fieldInfo);
                 }
             }
             for (TypeInfo ti : data.staticImportMap.staticAsterisk()) {
-                FieldInfo fieldInfo = ti.getFieldByName(name, false);
+                FieldInfo fieldInfo = data.memberIndex.field(ti, name);
                 if (fieldInfo != null) {
                     return data.runtime.newFieldReference(fieldInfo);
                 }
@@ -145,69 +221,69 @@ public class TypeContextImpl implements TypeContext {
     public void addNonStaticImportToContext(ImportStatement importStatement) {
         assert !importStatement.isStatic();
         String fqnWithAsterisk = importStatement.importString();
+        if (fqnWithAsterisk.endsWith(".*")
+            && fqnWithAsterisk.substring(0, fqnWithAsterisk.length() - 2).equals(data.compilationUnit.packageName())) {
+            return; // would be our own package; they are already there
+        }
+        // no computeIfAbsent: resolving may wait for types being loaded by other threads
+        ImportKey key = new ImportKey(sourceSet(), fqnWithAsterisk);
+        ResolvedImport resolved = data.importCache.nonStatic.get(key);
+        if (resolved == null) {
+            resolved = resolveNonStaticImport(fqnWithAsterisk);
+            data.importCache.nonStatic.putIfAbsent(key, resolved);
+        }
+        for (NamedTypePriority ntp : resolved.namedTypes) {
+            addToContext(ntp.namedType, ntp.priority);
+        }
+        if (resolved.asteriskPackage != null) {
+            // all types in a package, see getSimpleName
+            asteriskPackages.add(resolved.asteriskPackage);
+        }
+    }
+
+    private ResolvedImport resolveNonStaticImport(String fqnWithAsterisk) {
+        List<NamedTypePriority> namedTypes = new ArrayList<>();
         boolean isAsterisk = fqnWithAsterisk.endsWith(".*");
         if (isAsterisk) {
             String fullyQualified = fqnWithAsterisk.substring(0, fqnWithAsterisk.length() - 2);
 
             LOGGER.debug("Need to parse package {}", fullyQualified);
-            String packageName = data.compilationUnit.packageName();
-            if (!fullyQualified.equals(packageName)) { // would be our own package; they are already there
-                // we either have a type, a subtype, or a package
-                TypeInfo inSourceTypes = data.sourceTypeMap.get(fullyQualified, sourceSet());
-                if (inSourceTypes == null) {
-                    // deal with package
-                    for (TypeInfo typeInfo : data.sourceTypeMap.primaryTypesInPackage(fullyQualified)) {
-                        if (typeInfo.fullyQualifiedName().equals(fullyQualified + "." + typeInfo.simpleName())) {
-                            addToContext(typeInfo, IMPORT_ASTERISK_PACKAGE_PRIORITY);
-                        }
-                    }
-                } else {
-                    // we must import all subtypes
-                    inSourceTypes.subTypes().forEach(st -> addToContext(st, IMPORT_ASTERISK_SUBTYPE_PRIORITY));
-                }
-                TypeInfo inCompiledTypes = data.compiledTypesManager.getOrLoad(fullyQualified, sourceSet());
-                if (inCompiledTypes != null) {
-                    // we must add all the subtypes
-                    for (TypeInfo sub : inCompiledTypes.subTypes()) {
-                        addToContext(sub, IMPORT_ASTERISK_PACKAGE_PRIORITY);
+            // we either have a type, a subtype, or a package
+            TypeInfo inSourceTypes = data.sourceTypeMap.get(fullyQualified, sourceSet());
+            if (inSourceTypes == null) {
+                // deal with package
+                for (TypeInfo typeInfo : data.sourceTypeMap.primaryTypesInPackage(fullyQualified)) {
+                    if (typeInfo.fullyQualifiedName().equals(fullyQualified + "." + typeInfo.simpleName())) {
+                        namedTypes.add(new NamedTypePriority(typeInfo, IMPORT_ASTERISK_PACKAGE_PRIORITY));
                     }
-                } else {
-                    // all types in a package
-                    data.compiledTypesManager.classPath().expandLeaves(fullyQualified, ".class",
-                            (expansion, sourceFiles) ->
-                                    expanded(expansion, sourceFiles, fullyQualified));
                 }
+            } else {
+                // we must import all subtypes
+                inSourceTypes.subTypes().forEach(st ->
+                        namedTypes.add(new NamedTypePriority(st, IMPORT_ASTERISK_SUBTYPE_PRIORITY)));
             }
-        } else {
-            TypeInfo inSourceTypes = data.sourceTypeMap.get(importStatement.importString(), sourceSet());
-            if (inSourceTypes == null) {
-                TypeInfo inCompiledTypes = data.compiledTypesManager.getOrLoad(importStatement.importString(), sourceSet());
-                if (inCompiledTypes != null) {
-                    addToContext(inCompiledTypes, IMPORT_PRIORITY);
-                } else {
-                    LOGGER.error("Cannot handle import {}", importStatement.importString());
+            TypeInfo inCompiledTypes = data.compiledTypesManager.getOrLoad(fullyQualified, sourceSet());
+            if (inCompiledTypes != null) {
+                // we must add all the subtypes
+                for (TypeInfo sub : inCompiledTypes.subTypes()) {
+                    namedTypes.add(new NamedTypePriority(sub, IMPORT_ASTERISK_PACKAGE_PRIORITY));
                 }
-            } else {
-                addToContext(inSourceTypes, IMPORT_PRIORITY);
+                return new ResolvedImport(List.copyOf(namedTypes), null);
             }
+            return new ResolvedImport(List.copyOf(namedTypes), fullyQualified);
         }
-    }
-
-    private void expanded(String[] expansion, List<SourceFile> sourceFiles, String fullyQualified) {
-        String leaf = expansion[expansion.length - 1];
-        if (!leaf.contains("$")) {
-            // primary type
-            String simpleName = Resources.stripDotClass(leaf);
-            SourceFile sourceFile = sourceFiles.getFirst();
-            String path = fullyQualified.replace(".", "/") + "/" + simpleName + ".class";
-            TypeInfo newTypeInfo = data.compiledTypesManager.load(sourceFile.withPath(path));
-            if (newTypeInfo != null) {
-                LOGGER.debug("Registering inspection handler for {}", newTypeInfo);
-                addToContext(newTypeInfo, IMPORT_ASTERISK_PACKAGE_PRIORITY);
+        TypeInfo inSourceTypes = data.sourceTypeMap.get(fqnWithAsterisk, sourceSet());
+        if (inSourceTypes == null) {
+            TypeInfo inCompiledTypes = data.compiledTypesManager.getOrLoad(fqnWithAsterisk, sourceSet());
+            if (inCompiledTypes != null) {
+                namedTypes.add(new NamedTypePriority(inCompiledTypes, IMPORT_PRIORITY));
             } else {
-                LOGGER.error("Could not load {}, URI {}", path, sourceFile.uri());
+                LOGGER.error("Cannot handle import {}", fqnWithAsterisk);
             }
+        } else {
+            namedTypes.add(new NamedTypePriority(inSourceTypes, IMPORT_PRIORITY));
         }
+        return new ResolvedImport(List.copyOf(namedTypes), null);
     }
 
     private TypeInfo loadTypeDoNotImport(String fqn) {
@@ -256,6 +332,15 @@ public class TypeContextImpl implements TypeContext {
      * @return the type
      */
     private TypeInfo getFullyQualified(String fullyQualifiedName) {
+        Optional<TypeInfo> memo = data.qualifiedNameMemo.fullyQualified.get(fullyQualifiedName);
+        //noinspection OptionalAssignedToNull
+        if (memo != null) return memo.orElse(null);
+        TypeInfo typeInfo = computeFullyQualified(fullyQualifiedName);
+        data.qualifiedNameMemo.fullyQualified.put(fullyQualifiedName, Optional.ofNullable(typeInfo));
+        return typeInfo;
+    }
+
+    private TypeInfo computeFullyQualified(String fullyQualifiedName) {
         TypeInfo sourceType = data.sourceTypeMap.get(fullyQualifiedName, sourceSet());
         if (sourceType != null) {
             return sourceType;
@@ -341,6 +426,15 @@ public class TypeContextImpl implements TypeContext {
     }
 
     private TypeInfo subTypeOfRelated(TypeInfo typeInfo, String name) {
+        SubTypeKey key = new SubTypeKey(typeInfo, name);
+        TypeInfo memo = data.qualifiedNameMemo.subTypes.get(key);
+        if (memo != null) return memo;
+        TypeInfo sub = computeSubTypeOfRelated(typeInfo, name);
+        if (sub != null) data.qualifiedNameMemo.subTypes.put(key, sub);
+        return sub;
+    }
+
+    private TypeInfo computeSubTypeOfRelated(TypeInfo typeInfo, String name) {
         TypeInfo sub = typeInfo.findSubType(name, false);
         if (sub != null) return sub;
         if (typeInfo.parentClass() != null && !typeInfo.parentClass().typeInfo().isJavaLangObject()) {
@@ -358,6 +452,13 @@ public class TypeContextImpl implements TypeContext {
 
     private NamedType getSimpleName(String name) {
         NamedTypePriority namedTypePriority = map.get(name);
+        if (!asteriskPackages.isEmpty()
+            && (namedTypePriority == null || namedTypePriority.priority < IMPORT_ASTERISK_PACKAGE_PRIORITY)) {
+            TypeInfo inAsteriskPackage = loadFromAsteriskPackages(name);
+            if (inAsteriskPackage != null) {
+                return inAsteriskPackage;
+            }
+        }
         if (namedTypePriority != null) {
             return namedTypePriority.namedType;
         }
@@ -386,6 +487,18 @@ public class TypeContextImpl implements TypeContext {
     }
 
 
+    private TypeInfo loadFromAsteriskPackages(String simpleName) {
+        for (String packageName : asteriskPackages) {
+            TypeInfo typeInfo = data.compiledTypesManager.getOrLoad(packageName + "." + simpleName, sourceSet());
+            if (typeInfo != null && typeInfo.isPrimaryType() && packageName.equals(typeInfo.packageName())) {
+                LOGGER.debug("Registering inspection handler for {}", typeInfo);
+                addToContext(typeInfo, IMPORT_ASTERISK_PACKAGE_PRIORITY);
+                return typeInfo;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void addToContext(@NotNull NamedType namedType, int priority) {
         String simpleName = namedType.simpleName();
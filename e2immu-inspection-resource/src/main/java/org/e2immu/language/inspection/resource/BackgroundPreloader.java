@@ -0,0 +1,117 @@
+package org.e2immu.language.inspection.resource;
+
+import org.e2immu.language.cst.api.element.ImportStatement;
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.resource.CompiledTypesManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Loads the library types that the sources import, on virtual threads, while the sources are being scanned.
+ * <p>
+ * Only single-type imports, and the types of static imports, are loaded. Asterisk imports of packages are not:
+ * the types of a package are only loaded when a name cannot be resolved otherwise.
+ * A type for which the predicate holds is never loaded, so that a class path copy of a source type is never
+ * registered. The predicate must therefore hold for all source types from the start, not only for the ones that
+ * have been scanned already.
+ * <p>
+ * Preloading is speculative: an import that cannot be loaded is logged, and left to the parser to report
+ * if the type is actually used. {@link #close()} waits for all loading to finish.
+ * Every import is handled at most once. This relies on the compiled types manager allowing concurrent loading.
+ */
+public class BackgroundPreloader implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundPreloader.class);
+
+    /**
+     * @param source    the compilation unit containing the import
+     * @param name      the type being loaded
+     * @param exception the problem
+     */
+    public record Failure(URI source, String name, RuntimeException exception) {
+    }
+
+    private final CompiledTypesManager compiledTypesManager;
+    private final Predicate<String> isSourceType;
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger typesLoaded = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param isSourceType types for which this predicate holds are not loaded from the class path
+     */
+    public BackgroundPreloader(CompiledTypesManager compiledTypesManager, Predicate<String> isSourceType) {
+        this.compiledTypesManager = compiledTypesManager;
+        this.isSourceType = isSourceType;
+    }
+
+    /**
+     * Start loading the imported types. Can be called concurrently, until <code>close</code> is called.
+     *
+     * @param source the URI of the compilation unit, for reporting
+     */
+    public void preloadImports(URI source, List<ImportStatement> importStatements) {
+        for (ImportStatement importStatement : importStatements) {
+            String importString = importStatement.importString();
+            boolean isAsterisk = importString.endsWith(".*");
+            String name = isAsterisk ? importString.substring(0, importString.length() - 2) : importString;
+            if (importStatement.isStatic()) {
+                // import static a.b.C.*, import static a.b.C.member
+                String typeName = isAsterisk ? name : name.substring(0, Math.max(0, name.lastIndexOf('.')));
+                request(source, typeName);
+            } else if (!isAsterisk) {
+                request(source, name);
+            }
+        }
+    }
+
+    private void request(URI source, String name) {
+        if (!name.isEmpty() && compiledTypesManager.acceptFQN(name) && requested.add(name)) {
+            executor.execute(() -> load(source, name));
+        }
+    }
+
+    private void load(URI source, String name) {
+        if (isSourceType.test(name)) return;
+        try {
+            TypeInfo typeInfo = compiledTypesManager.getOrLoad(name, null);
+            if (typeInfo != null) {
+                compiledTypesManager.ensureInspection(typeInfo);
+                typesLoaded.incrementAndGet();
+            }
+        } catch (RuntimeException re) {
+            failures.add(new Failure(source, name, re));
+        }
+    }
+
+    /**
+     * Wait until all loading has finished. No imports can be added afterward.
+     *
+     * @return the imports that could not be loaded because of an exception; imports that cannot be found
+     * are not failures
+     */
+    public List<Failure> awaitAll() {
+        executor.close(); // waits for all tasks to finish
+        LOGGER.info("Background preloading: {} imports seen, {} types loaded, {} failures",
+                requested.size(), typesLoaded.get(), failures.size());
+        return List.copyOf(failures);
+    }
+
+    /**
+     * Wait until all loading has finished, and log the failures.
+     */
+    @Override
+    public void close() {
+        for (Failure failure : awaitAll()) {
+            LOGGER.warn("Cannot preload {}, imported in {}", failure.name, failure.source, failure.exception);
+        }
+    }
+}
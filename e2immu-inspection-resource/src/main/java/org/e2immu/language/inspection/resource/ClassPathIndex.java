@@ -0,0 +1,118 @@
+package org.e2immu.language.inspection.resource;
+
+import org.e2immu.language.cst.api.element.FingerPrint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent on-disk index of the relevant entries of a jar or jmod file.
+ * <p>
+ * There is one index file per container, stored in the cache directory. Its name is derived from the absolute path
+ * of the container; its header records the size, the modification time and (if available) the fingerprint of the
+ * container. When any of these differ from the current values, the index is considered stale, and the caller
+ * falls back to enumerating the entries of the container.
+ */
+public class ClassPathIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassPathIndex.class);
+
+    static final int MAGIC = 0xE21D_C1A5;
+    static final int VERSION = 1;
+    static final String SUFFIX = ".idx";
+
+    private final Path cacheDirectory;
+
+    public ClassPathIndex(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public Path cacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * @param container   the jar or jmod file
+     * @param fingerPrint the fingerprint of the container, or null when no fingerprint has been computed
+     * @return the entry names stored in the index, or null when there is no valid index for the container.
+     */
+    public List<String> load(Path container, FingerPrint fingerPrint) {
+        Path indexFile = indexFile(container);
+        if (!Files.isRegularFile(indexFile)) return null;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(container, BasicFileAttributes.class);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    LOGGER.debug("Index {} has the wrong format", indexFile);
+                    return null;
+                }
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String fingerPrintString = in.readUTF();
+                if (!path.equals(container.toAbsolutePath().toString())
+                    || size != attributes.size()
+                    || lastModified != attributes.lastModifiedTime().toMillis()
+                    || !fingerPrintMatches(fingerPrint, fingerPrintString)) {
+                    LOGGER.debug("Index {} is stale", indexFile);
+                    return null;
+                }
+                int n = in.readInt();
+                List<String> entries = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    entries.add(in.readUTF());
+                }
+                return entries;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot read index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean fingerPrintMatches(FingerPrint fingerPrint, String stored) {
+        if (fingerPrint == null || fingerPrint.isNoFingerPrint() || stored.isEmpty()) return true;
+        return stored.equals(fingerPrint.toString());
+    }
+
+    /**
+     * Write the index for a container. Failure to write is logged, but otherwise ignored.
+     */
+    public void store(Path container, FingerPrint fingerPrint, List<String> entries) {
+        Path indexFile = indexFile(container);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(container, BasicFileAttributes.class);
+            Files.createDirectories(cacheDirectory);
+            Path tmp = Files.createTempFile(cacheDirectory, indexFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(container.toAbsolutePath().toString());
+                out.writeLong(attributes.size());
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.writeUTF(fingerPrint == null || fingerPrint.isNoFingerPrint() ? "" : fingerPrint.toString());
+                out.writeInt(entries.size());
+                for (String entry : entries) {
+                    out.writeUTF(entry);
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Wrote index {} with {} entries", indexFile, entries.size());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot write index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    Path indexFile(Path container) {
+        Path absolute = container.toAbsolutePath();
+        String fileName = absolute.getFileName().toString();
+        String hash = Integer.toHexString(absolute.toString().hashCode());
+        return cacheDirectory.resolve(fileName + "-" + hash + SUFFIX);
+    }
+}
@@ -7,28 +7,128 @@ import org.e2immu.language.inspection.api.resource.CompiledTypesManager;
 import org.e2immu.language.inspection.api.resource.Resources;
 import org.e2immu.language.inspection.api.resource.SourceFile;
 import org.e2immu.support.SetOnce;
-import org.e2immu.util.internal.util.Trie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class CompiledTypesManagerImpl implements CompiledTypesManager {
     private final Logger LOGGER = LoggerFactory.getLogger(CompiledTypesManagerImpl.class);
 
     private final Resources classPath;
+    // read-mostly layer of library types shared with other managers; null when absent
+    private final CompiledTypesManager sharedLayer;
     private final SetOnce<ByteCodeInspector> byteCodeInspector = new SetOnce<>();
-    private final Map<String, TypeInfo> typeMap = new HashMap<>();
-    private final ReentrantReadWriteLock typeMapLock = new ReentrantReadWriteLock();
-    private final Trie<TypeInfo> typeTrie = new Trie<>();
-    private final Set<String> allTypesInThisPackageHaveBeenLoaded = new HashSet<>();
-    private final ReentrantReadWriteLock allTypesLock = new ReentrantReadWriteLock();
+    // lock-free registry: fully qualified name -> type, and package name -> primary types
+    private final Map<String, TypeInfo> typeMap = new ConcurrentHashMap<>();
+    private final Map<String, Set<TypeInfo>> primaryTypesByPackage = new ConcurrentHashMap<>();
+    // packages of which all primary types have been loaded, and packages where this loading has been started
+    private final Set<String> allTypesInThisPackageHaveBeenLoaded = ConcurrentHashMap.newKeySet();
+    private final Set<String> allTypesInThisPackageStarted = ConcurrentHashMap.newKeySet();
+
+    /*
+    The byte code inspector works on one primary type at a time; different primary types are loaded concurrently.
+    A thread that needs a primary type which is being loaded by another thread waits for it. While waiting,
+    it runs the work that other threads hand over to it.
+    When waiting would close a cycle of waiting threads, the thread hands its work over to the thread that owns
+    the primary type, and waits for the result. The owner runs it exactly as it would run a recursive request for
+    a type it is loading itself, so that a cycle between threads behaves as a cycle of references within
+    a single thread. A primary type is never built, or inspected, by two threads, and no thread reads a type
+    while another one is building it.
+     */
+    private final Map<String, Loading> loading = new ConcurrentHashMap<>();
+    private final Map<Thread, Waiter> waiters = new ConcurrentHashMap<>();
+
+    // keys of primary types are paths, e.g. java/util/Map
+    private static final String PACKAGE_KEY_PREFIX = "package ";
+
+    private static final class Loading {
+        final Thread owner = Thread.currentThread();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
+    /*
+    The waiting state of a thread. Waits can be nested: a thread that runs work handed over to it, may have to
+    wait again. Work can only be handed over while the thread is waiting; it is then run by the innermost wait,
+    or, when that wait has just ended, by an outer one.
+     */
+    private final class Waiter {
+        private final Thread thread = Thread.currentThread();
+        private final Deque<Runnable> handedOver = new ArrayDeque<>();
+        private Thread waitingFor; // null when not waiting
+
+        synchronized Thread waitingFor() {
+            return waitingFor;
+        }
+
+        synchronized boolean handOver(Runnable work) {
+            if (waitingFor == null) return false;
+            handedOver.add(work);
+            notifyAll();
+            return true;
+        }
+
+        void await(CompletableFuture<?> future, Thread owner) {
+            Thread previous;
+            synchronized (this) {
+                previous = waitingFor;
+                waitingFor = owner;
+            }
+            future.whenComplete((_, _) -> {
+                synchronized (this) {
+                    notifyAll();
+                }
+            });
+            boolean interrupted = false;
+            while (true) {
+                Runnable work;
+                synchronized (this) {
+                    while (handedOver.isEmpty() && !future.isDone()) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true; // loading cannot be abandoned halfway
+                        }
+                    }
+                    work = handedOver.poll();
+                    if (work == null) {
+                        // atomically with the check: from now on, nothing is handed over to this wait
+                        waitingFor = previous;
+                        if (previous == null) waiters.remove(thread, this);
+                        break;
+                    }
+                }
+                work.run();
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
 
     public CompiledTypesManagerImpl(Resources classPath) {
+        this(classPath, null);
+    }
+
+    /**
+     * Types that the shared layer can find on its class path are loaded by, and registered in, the shared layer.
+     * The shared layer must be closed under type references: its types cannot refer to the types of this manager.
+     *
+     * @param classPath   the complete class path: the parts of the shared layer, followed by the parts
+     *                    that are specific to this manager
+     * @param sharedLayer the manager of the shared parts, or null
+     */
+    public CompiledTypesManagerImpl(Resources classPath, CompiledTypesManager sharedLayer) {
         this.classPath = classPath;
+        this.sharedLayer = sharedLayer;
+    }
+
+    private boolean inSharedLayer(String fullyQualifiedName) {
+        return sharedLayer != null && sharedLayer.fqnToPath(fullyQualifiedName, ".class") != null;
     }
 
     @Override
@@ -36,16 +136,19 @@ public class CompiledTypesManagerImpl implements CompiledTypesManager {
         return classPath;
     }
 
+    /*
+    A second type object for the same name means that the type has been built twice; that is a bug, which we
+    must not hide, not even with assertions disabled: the other parts of the registry would disagree with the map.
+     */
     @Override
     public void add(TypeInfo typeInfo) {
-        typeMapLock.writeLock().lock();
-        try {
-            TypeInfo previous = typeMap.put(typeInfo.fullyQualifiedName(), typeInfo);
-            assert previous == null;
-            String[] parts = typeInfo.fullyQualifiedName().split("\\.");
-            typeTrie.add(parts, typeInfo);
-        } finally {
-            typeMapLock.writeLock().unlock();
+        TypeInfo previous = typeMap.putIfAbsent(typeInfo.fullyQualifiedName(), typeInfo);
+        if (previous != null) {
+            throw new IllegalStateException("Type " + typeInfo.fullyQualifiedName() + " has already been registered");
+        }
+        if (typeInfo.isPrimaryType()) {
+            primaryTypesByPackage.computeIfAbsent(typeInfo.packageName(), _ -> ConcurrentHashMap.newKeySet())
+                    .add(typeInfo);
         }
     }
 
@@ -56,49 +159,154 @@ public class CompiledTypesManagerImpl implements CompiledTypesManager {
 
     @Override
     public TypeInfo get(String fullyQualifiedName, SourceSet sourceSetOfRequest) {
-        typeMapLock.readLock().lock();
-        try {
-            return typeMap.get(fullyQualifiedName);
-        } finally {
-            typeMapLock.readLock().unlock();
+        TypeInfo typeInfo = typeMap.get(fullyQualifiedName);
+        if (typeInfo == null && sharedLayer != null) {
+            return sharedLayer.get(fullyQualifiedName, sourceSetOfRequest);
         }
+        return typeInfo;
     }
 
     @Override
     public TypeInfo getOrLoad(String fullyQualifiedName, SourceSet sourceSetOfRequest) {
-        typeMapLock.readLock().lock();
-        try {
-            TypeInfo typeInfo = typeMap.get(fullyQualifiedName);
-            if (typeInfo != null) return typeInfo;
-        } finally {
-            typeMapLock.readLock().unlock();
-        }
+        TypeInfo typeInfo = get(fullyQualifiedName, sourceSetOfRequest);
+        if (typeInfo != null) return typeInfo;
+        if (inSharedLayer(fullyQualifiedName)) return sharedLayer.getOrLoad(fullyQualifiedName, sourceSetOfRequest);
         SourceFile path = fqnToPath(fullyQualifiedName, ".class");
         if (path == null) return null;
-        synchronized (byteCodeInspector) {
-            return byteCodeInspector.get().load(path);
-        }
+        return getOrLoad(fullyQualifiedName, path);
+    }
+
+    private TypeInfo getOrLoad(String fullyQualifiedName, SourceFile path) {
+        if (inSharedLayer(fullyQualifiedName)) return sharedLayer.getOrLoad(fullyQualifiedName, null);
+        String key = primaryTypeKey(path);
+        return loadExclusively(key, () -> {
+            TypeInfo inMap = get(fullyQualifiedName, null);
+            return inMap != null ? inMap : byteCodeInspector.get().load(path);
+        });
     }
 
     @Override
     public void ensureInspection(TypeInfo typeInfo) {
         if (!typeInfo.hasBeenInspected()) {
+            if (sharedLayer != null && sharedLayer.get(typeInfo.fullyQualifiedName(), null) == typeInfo) {
+                sharedLayer.ensureInspection(typeInfo);
+                return;
+            }
             SourceFile sourceFile = fqnToPath(typeInfo.fullyQualifiedName(), ".class");
             if (sourceFile == null) throw new UnsupportedOperationException("Cannot find .class file for " + typeInfo);
-            synchronized (byteCodeInspector) {
-                byteCodeInspector.get().load(typeInfo);
-            }
+            loadExclusively(primaryTypeKey(sourceFile), () -> {
+                if (!typeInfo.hasBeenInspected()) {
+                    byteCodeInspector.get().load(typeInfo);
+                }
+                return typeInfo;
+            });
         }
     }
 
     @Override
     public TypeInfo load(SourceFile path) {
         // only to be used when the type does not yet exist!
-        synchronized (byteCodeInspector) {
-            return byteCodeInspector.get().load(path);
+        String key = primaryTypeKey(path);
+        if (inSharedLayer(key.replace('/', '.'))) return sharedLayer.load(path);
+        // another thread may have loaded the type while this one was waiting
+        String fullyQualifiedName = Resources.stripDotClass(path.path()).replace('/', '.').replace('$', '.');
+        return loadExclusively(key, () -> {
+            TypeInfo inMap = get(fullyQualifiedName, null);
+            return inMap != null ? inMap : byteCodeInspector.get().load(path);
+        });
+    }
+
+    /*
+    "java/util/Map$Entry.class" -> "java/util/Map"
+     */
+    private static String primaryTypeKey(SourceFile sourceFile) {
+        String path = sourceFile.path();
+        int slash = path.lastIndexOf('/');
+        int dollar = path.indexOf('$', slash + 1);
+        if (dollar > 0) return path.substring(0, dollar);
+        return Resources.stripDotClass(path);
+    }
+
+    /**
+     * Run the loader while holding the primary type, or wait for the thread currently holding it.
+     * When waiting would close a cycle, the loader is run by the thread holding the primary type.
+     *
+     * @param key    the primary type
+     * @param loader the action; it must check whether it still needs to be done, as another thread may
+     *               have done it while this thread was waiting
+     */
+    private <T> T loadExclusively(String key, Supplier<T> loader) {
+        return loadExclusively(key, loader, null);
+    }
+
+    /**
+     * @param onCycle when not null, the result when waiting would close a cycle, rather than handing over the loader
+     */
+    private <T> T loadExclusively(String key, Supplier<T> loader, Supplier<T> onCycle) {
+        Thread thread = Thread.currentThread();
+        while (true) {
+            Loading mine = new Loading();
+            Loading current = loading.putIfAbsent(key, mine);
+            if (current == null) {
+                try {
+                    return loader.get();
+                } finally {
+                    loading.remove(key, mine);
+                    mine.done.complete(null);
+                }
+            }
+            if (current.owner == thread) {
+                return loader.get(); // recursion within the same thread
+            }
+            Waiter waiter = waiters.computeIfAbsent(thread, _ -> new Waiter());
+            if (!closesWaitCycle(current.owner)) {
+                waiter.await(current.done, current.owner);
+            } else if (onCycle != null) {
+                LOGGER.debug("Not waiting for {}, which is being loaded by {}", key, current.owner.getName());
+                return onCycle.get();
+            } else {
+                Waiter ownerWaiter = waiters.get(current.owner);
+                CompletableFuture<T> result = new CompletableFuture<>();
+                // the owner may have released the key by the time it runs this, so it must acquire it again
+                Runnable work = () -> {
+                    try {
+                        result.complete(loadExclusively(key, loader, onCycle));
+                    } catch (Throwable throwable) {
+                        result.completeExceptionally(throwable);
+                    }
+                };
+                if (ownerWaiter != null && ownerWaiter.handOver(work)) {
+                    LOGGER.debug("Handing over {} to {}", key, current.owner.getName());
+                    waiter.await(result, current.owner);
+                    return joinUnwrapped(result);
+                }
+                // the owner is not waiting anymore, so there is no cycle now: try again
+            }
+        }
+    }
+
+    private static <T> T joinUnwrapped(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException re) throw re;
+            if (ce.getCause() instanceof Error error) throw error;
+            throw ce;
         }
     }
 
+    private boolean closesWaitCycle(Thread owner) {
+        Thread thread = Thread.currentThread();
+        Thread t = owner;
+        // every waiting thread appears at most once in a chain, unless there is a cycle among other threads
+        for (int steps = 0; t != null && steps <= waiters.size(); steps++) {
+            if (t == thread) return true;
+            Waiter waiter = waiters.get(t);
+            t = waiter == null ? null : waiter.waitingFor();
+        }
+        return false;
+    }
+
     public void setByteCodeInspector(ByteCodeInspector byteCodeInspector) {
         this.byteCodeInspector.set(byteCodeInspector);
     }
@@ -110,101 +318,107 @@ public class CompiledTypesManagerImpl implements CompiledTypesManager {
         LOGGER.info("... inspected {} paths", inspected);
     }
 
-    private int loadAllTypesInPackage(String thePackage, Set<String> fqnsToAvoid) {
+    /**
+     * Load and inspect the given primary types in parallel. Types that cannot be found on the class path
+     * are ignored.
+     *
+     * @param fullyQualifiedNames typically the result of <code>inspectedPrimaryTypes</code> in a previous run
+     * @return the number of types inspected
+     */
+    public int preloadTypes(Collection<String> fullyQualifiedNames) {
+        LOGGER.info("Start pre-loading {} types", fullyQualifiedNames.size());
         AtomicInteger inspected = new AtomicInteger();
-        classPath.expandLeaves(thePackage, ".class", (expansion, _) -> {
-            // we'll loop over the primary types only
-            if (!expansion[expansion.length - 1].contains("$")) {
-                String fqn = fqnOfClassFile(thePackage, expansion);
-                if (!fqnsToAvoid.contains(fqn)) {
-                    assert acceptFQN(fqn);
-                    typeMapLock.readLock().lock();
-                    TypeInfo typeInfo;
-                    try {
-                        typeInfo = typeMap.get(fqn);
-                    } finally {
-                        typeMapLock.readLock().unlock();
-                    }
-                    if (typeInfo == null) {
-                        SourceFile path = fqnToPath(fqn, ".class");
-                        if (path != null) {
-                            synchronized (byteCodeInspector) {
-                                byteCodeInspector.get().load(path);
-                            }
-                            inspected.incrementAndGet();
-                        }
-                    }
-                } // else: we have a source type with this FQN, will not load the binary type.
+        fullyQualifiedNames.parallelStream().filter(this::acceptFQN).forEach(fqn -> {
+            try {
+                TypeInfo typeInfo = getOrLoad(fqn, null);
+                if (typeInfo != null) {
+                    ensureInspection(typeInfo);
+                    inspected.incrementAndGet();
+                }
+            } catch (RuntimeException re) {
+                LOGGER.warn("Cannot pre-load {}: {}", fqn, re.getMessage());
             }
         });
+        LOGGER.info("... inspected {} types", inspected);
         return inspected.get();
     }
 
-    private String fqnOfClassFile(String prefix, String[] suffixes) {
-        String combined = prefix + "." + String.join(".", suffixes).replaceAll("\\$", ".");
-        if (combined.endsWith(".class")) {
-            return combined.substring(0, combined.length() - 6);
+    /**
+     * @return the fully qualified names of the primary types that have been inspected so far, sorted
+     */
+    public List<String> inspectedPrimaryTypes() {
+        return primaryTypesByPackage.values().stream()
+                .flatMap(Set::stream)
+                .filter(TypeInfo::hasBeenInspected)
+                .map(TypeInfo::fullyQualifiedName)
+                .sorted()
+                .toList();
+    }
+
+    private int loadAllTypesInPackage(String thePackage, Set<String> fqnsToAvoid) {
+        int inspected = 0;
+        for (SourceFile path : classPath.primaryTypesInPackage(thePackage, ".class")) {
+            String fqn = Resources.stripDotClass(path.path()).replace('/', '.');
+            if (!fqnsToAvoid.contains(fqn)) {
+                assert acceptFQN(fqn);
+                if (get(fqn, null) == null) {
+                    getOrLoad(fqn, path);
+                    inspected++;
+                }
+            } // else: we have a source type with this FQN, will not load the binary type.
         }
-        throw new UnsupportedOperationException("Expected .class or .java file, but got " + combined);
+        return inspected;
     }
 
     @Override
     public List<TypeInfo> typesLoaded() {
-        typeMapLock.readLock().lock();
-        try {
-            return typeMap.values().stream().sorted(Comparator.comparing(TypeInfo::fullyQualifiedName)).toList();
-        } finally {
-            typeMapLock.readLock().unlock();
-        }
+        Stream<TypeInfo> shared = sharedLayer == null ? Stream.of() : sharedLayer.typesLoaded().stream();
+        return Stream.concat(shared, typeMap.values().stream())
+                .sorted(Comparator.comparing(TypeInfo::fullyQualifiedName)).toList();
     }
 
     @Override
     public Collection<TypeInfo> primaryTypesInPackageEnsureLoaded(String packageName, Set<String> fqnToAvoid) {
         ensureAllTypesInThisPackageHaveBeenLoaded(packageName, fqnToAvoid);
-        String[] packages = packageName.split("\\.");
-        List<TypeInfo> result = new ArrayList<>();
-        typeMapLock.readLock().lock();
-        try {
-            typeTrie.visit(packages, (_, list) -> list.stream()
-                    .filter(ti -> ti.isPrimaryType()
-                                  && packageName.equals(ti.packageName())
-                                  && !fqnToAvoid.contains(ti.fullyQualifiedName()))
-                    .forEach(result::add));
-            return List.copyOf(result);
-        } finally {
-            typeMapLock.readLock().unlock();
-        }
+        Set<TypeInfo> primaryTypes = primaryTypesByPackage.get(packageName);
+        Stream<TypeInfo> own = primaryTypes == null ? Stream.of() : primaryTypes.stream();
+        Stream<TypeInfo> shared = sharedLayer == null || !sharedLayer.packageContainsTypes(packageName)
+                ? Stream.of() : sharedLayer.primaryTypesInPackageEnsureLoaded(packageName, fqnToAvoid).stream();
+        return Stream.concat(shared, own)
+                .filter(ti -> !fqnToAvoid.contains(ti.fullyQualifiedName()))
+                .sorted(Comparator.comparing(TypeInfo::fullyQualifiedName))
+                .toList();
     }
 
+    /*
+    Other threads wait until the package has been loaded completely; the loading thread itself may recurse
+    into this method for the same package, and then continues with what has been loaded so far.
+    When waiting would close a cycle, the waiting thread loads the types of the package itself: every type
+    is still loaded only once, and the listing is complete.
+    When loading fails, the package is not marked, so that a later call tries again.
+     */
     private void ensureAllTypesInThisPackageHaveBeenLoaded(String packageName, Set<String> fqnToAvoid) {
-        allTypesLock.readLock().lock();
-        try {
-            if (!allTypesInThisPackageHaveBeenLoaded.contains(packageName)) {
-                allTypesLock.readLock().unlock();
-                allTypesLock.writeLock().lock();
+        if (allTypesInThisPackageHaveBeenLoaded.contains(packageName)) return;
+        loadExclusively(PACKAGE_KEY_PREFIX + packageName, () -> {
+            if (allTypesInThisPackageStarted.add(packageName)) {
+                boolean success = false;
                 try {
-                    try {
-                        if (allTypesInThisPackageHaveBeenLoaded.add(packageName)) {
-                            loadAllTypesInPackage(packageName, fqnToAvoid);
-                        }
-                    } finally {
-                        allTypesLock.readLock().lock();
-                    }
+                    loadAllTypesInPackage(packageName, fqnToAvoid);
+                    allTypesInThisPackageHaveBeenLoaded.add(packageName);
+                    success = true;
                 } finally {
-                    allTypesLock.writeLock().unlock();
+                    if (!success) allTypesInThisPackageStarted.remove(packageName);
                 }
             }
-        } finally {
-            allTypesLock.readLock().unlock();
-        }
+            return null;
+        }, () -> {
+            loadAllTypesInPackage(packageName, fqnToAvoid);
+            return null;
+        });
     }
 
     @Override
     public boolean packageContainsTypes(String packageName) {
-        AtomicBoolean found = new AtomicBoolean();
-        classPath.expandLeaves(packageName, ".class", (s, l) -> {
-            if (!l.isEmpty()) found.set(true);
-        });
-        return found.get();
+        return classPath.containsPackage(packageName, ".class");
     }
 }
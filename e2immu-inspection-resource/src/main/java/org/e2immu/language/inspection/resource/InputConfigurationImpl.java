@@ -17,7 +17,10 @@ import java.util.stream.Stream;
 public record InputConfigurationImpl(Path workingDirectory,
                                      List<SourceSet> sourceSets,
                                      List<SourceSet> classPathParts,
-                                     Path alternativeJREDirectory) implements InputConfiguration {
+                                     Path alternativeJREDirectory,
+                                     Path cacheDirectory,
+                                     boolean parallelInitialization,
+                                     boolean watchSources) implements InputConfiguration {
 
     public static final String MAVEN_MAIN = "src/main/java";
     public static final String MAVEN_TEST = "src/test/java";
@@ -32,6 +35,13 @@ public record InputConfigurationImpl(Path workingDirectory,
             "jmod:java.xml",
     };
 
+    /*
+    the same modules, read from the runtime image rather than from the jmods
+     */
+    public static final String[] DEFAULT_JRT_MODULES = Arrays.stream(DEFAULT_MODULES)
+            .map(module -> "jrt:" + module.substring("jmod:".length()))
+            .toArray(String[]::new);
+
     static final String NL_TAB = "\n    ";
 
     @Override
@@ -40,7 +50,8 @@ public record InputConfigurationImpl(Path workingDirectory,
                 new SourceSetImpl(mod, null, URI.create(mod), StandardCharsets.UTF_8, false, true,
                         true, true, false, Set.of(), Set.of()));
         return new InputConfigurationImpl(workingDirectory, sourceSets, Stream.concat(classPathParts.stream(),
-                defaultModuleStream).toList(), alternativeJREDirectory);
+                defaultModuleStream).toList(), alternativeJREDirectory, cacheDirectory,
+                parallelInitialization, watchSources);
     }
 
     @Override
@@ -54,7 +65,8 @@ public record InputConfigurationImpl(Path workingDirectory,
                         StandardCharsets.UTF_8, false, true,
                         true, false, false, Set.of(), Set.of());
         return new InputConfigurationImpl(workingDirectory, sourceSets, Stream.concat(classPathParts.stream(),
-                Stream.of(e2immuSupport)).toList(), alternativeJREDirectory);
+                Stream.of(e2immuSupport)).toList(), alternativeJREDirectory, cacheDirectory,
+                parallelInitialization, watchSources);
     }
 
     @Override
@@ -74,7 +86,10 @@ public record InputConfigurationImpl(Path workingDirectory,
                 NL_TAB + "sourcesSets=" + sourceSets +
                 NL_TAB + "classPathParts=" + classPathParts +
                 NL_TAB + "alternativeJREDirectory=" + (alternativeJREDirectory == null ? "<default>"
-                : alternativeJREDirectory);
+                : alternativeJREDirectory) +
+                (cacheDirectory == null ? "" : NL_TAB + "cacheDirectory=" + cacheDirectory) +
+                (parallelInitialization ? NL_TAB + "parallelInitialization" : "") +
+                (watchSources ? NL_TAB + "watchSources" : "");
     }
 
     @Container
@@ -94,6 +109,9 @@ public record InputConfigurationImpl(Path workingDirectory,
         private String workingDirectory;
         private String alternativeJREDirectory;
         private String sourceEncoding;
+        private String cacheDirectory;
+        private boolean parallelInitialization;
+        private boolean watchSources;
 
         public InputConfiguration build() {
             Charset sourceCharset = sourceEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(sourceEncoding);
@@ -136,7 +154,9 @@ public record InputConfigurationImpl(Path workingDirectory,
                     ? Path.of(".") : Path.of(workingDirectory),
                     List.copyOf(sourceSets), List.copyOf(classPathParts),
                     alternativeJREDirectory == null || alternativeJREDirectory.isBlank()
-                            ? null : Path.of(alternativeJREDirectory));
+                            ? null : Path.of(alternativeJREDirectory),
+                    cacheDirectory == null || cacheDirectory.isBlank() ? null : Path.of(cacheDirectory),
+                    parallelInitialization, watchSources);
         }
 
         private static final Pattern SCHEME = Pattern.compile("([A-Za-z-]+):.+");
@@ -149,7 +169,7 @@ public record InputConfigurationImpl(Path workingDirectory,
         }
 
         private static boolean isJmod(String classPathPart) {
-            return classPathPart.startsWith("jmod:");
+            return classPathPart.startsWith("jmod:") || classPathPart.startsWith("jrt:");
         }
 
         @Override
@@ -226,6 +246,27 @@ public record InputConfigurationImpl(Path workingDirectory,
             return this;
         }
 
+        @Override
+        @Fluent
+        public Builder setCacheDirectory(String cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        @Override
+        @Fluent
+        public Builder setParallelInitialization(boolean parallelInitialization) {
+            this.parallelInitialization = parallelInitialization;
+            return this;
+        }
+
+        @Override
+        @Fluent
+        public Builder setWatchSources(boolean watchSources) {
+            this.watchSources = watchSources;
+            return this;
+        }
+
         @Override
         @Fluent
         public Builder addRestrictSourceToPackages(String... packages) {
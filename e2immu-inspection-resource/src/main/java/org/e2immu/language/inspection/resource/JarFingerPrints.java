@@ -0,0 +1,203 @@
+package org.e2immu.language.inspection.resource;
+
+import org.e2immu.language.cst.api.element.FingerPrint;
+import org.e2immu.language.inspection.api.resource.MD5FingerPrint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes and caches the fingerprints of jar and jmod files.
+ * <p>
+ * Fingerprints are computed in a streaming fashion, and cached in memory and, when a cache directory is
+ * available, on disk, keyed by path, size and modification time. This class is thread-safe, so that
+ * the fingerprints of different class path parts can be computed in parallel.
+ */
+public class JarFingerPrints {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JarFingerPrints.class);
+
+    public enum Mode {
+        // MD5 of the full content of the file
+        CONTENT,
+        /*
+         MD5 of the central directory of the zip file. It contains the name, size and CRC-32 of every entry,
+         so that it changes whenever the content changes, but it is only a fraction of the size of the file.
+         */
+        CENTRAL_DIRECTORY
+    }
+
+    static final int MAGIC = 0xE21D_F1A5;
+    static final int VERSION = 1;
+    static final String FILE_NAME = "jarFingerPrints.bin";
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_MIN_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private record Key(String path, Mode mode) {
+    }
+
+    private record Value(long size, long lastModified, FingerPrint fingerPrint) {
+    }
+
+    private final Path cacheFile;
+    private final Mode mode;
+    private final Map<Key, Value> cache = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    /**
+     * @param cacheDirectory when null, fingerprints are only cached in memory
+     * @param mode           how the fingerprints are computed
+     */
+    public JarFingerPrints(Path cacheDirectory, Mode mode) {
+        this.cacheFile = cacheDirectory == null ? null : cacheDirectory.resolve(FILE_NAME);
+        this.mode = mode;
+        if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+            read();
+        }
+    }
+
+    public FingerPrint fingerPrint(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Key key = new Key(absolute.toString(), mode);
+        Value value = cache.get(key);
+        if (value != null && value.size == size && value.lastModified == lastModified) {
+            return value.fingerPrint;
+        }
+        FingerPrint fingerPrint = switch (mode) {
+            case CONTENT -> computeContent(absolute);
+            case CENTRAL_DIRECTORY -> computeCentralDirectory(absolute);
+        };
+        cache.put(key, new Value(size, lastModified, fingerPrint));
+        modified = true;
+        return fingerPrint;
+    }
+
+    private static FingerPrint computeContent(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return MD5FingerPrint.compute(inputStream);
+        }
+    }
+
+    /*
+    The end-of-central-directory record sits at the end of the file, possibly followed by a comment.
+    The central directory immediately precedes it. We do not use the offset stored in the record, because
+    in a jmod file, the zip content is preceded by a 4-byte header.
+     */
+    static FingerPrint computeCentralDirectory(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int tailSize = (int) Math.min(fileSize, EOCD_MIN_SIZE + MAX_COMMENT_SIZE);
+            ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, fileSize - tailSize + tail.position()) < 0) break;
+            }
+            tail.flip();
+            for (int i = tailSize - EOCD_MIN_SIZE; i >= 0; i--) {
+                if (tail.getInt(i) == EOCD_SIGNATURE) {
+                    long centralDirectorySize = Integer.toUnsignedLong(tail.getInt(i + 12));
+                    long eocdPosition = fileSize - tailSize + i;
+                    long start = eocdPosition - centralDirectorySize;
+                    if (centralDirectorySize == 0xFFFFFFFFL || start < 0) break; // zip64, or not a zip file
+                    channel.position(start);
+                    InputStream inputStream = new BoundedInputStream(Channels.newInputStream(channel),
+                            centralDirectorySize + EOCD_MIN_SIZE);
+                    return MD5FingerPrint.compute(inputStream);
+                }
+            }
+        }
+        LOGGER.debug("No central directory found in {}, computing fingerprint of the content", path);
+        return computeContent(path);
+    }
+
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+    }
+
+    private void read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.debug("Fingerprint cache {} has the wrong format", cacheFile);
+                return;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String path = in.readUTF();
+                Mode mode = Mode.values()[in.readByte()];
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                FingerPrint fingerPrint = MD5FingerPrint.from(in.readUTF());
+                cache.put(new Key(path, mode), new Value(size, lastModified, fingerPrint));
+            }
+            LOGGER.debug("Read {} fingerprints from {}", n, cacheFile);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot read fingerprint cache {}: {}", cacheFile, e.getMessage());
+            cache.clear();
+        }
+    }
+
+    /**
+     * Write the cache to disk, if there is a cache directory and new fingerprints have been computed.
+     * Failure to write is logged, but otherwise ignored.
+     */
+    public void write() {
+        if (cacheFile == null || !modified) return;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = Files.createTempFile(cacheFile.getParent(), FILE_NAME, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                Map<Key, Value> copy = Map.copyOf(cache);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(copy.size());
+                for (Map.Entry<Key, Value> entry : copy.entrySet()) {
+                    out.writeUTF(entry.getKey().path);
+                    out.writeByte(entry.getKey().mode.ordinal());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeUTF(entry.getValue().fingerPrint.toString());
+                }
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot write fingerprint cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+}
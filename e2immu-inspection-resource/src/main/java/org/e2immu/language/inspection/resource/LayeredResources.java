@@ -0,0 +1,225 @@
+package org.e2immu.language.inspection.resource;
+
+import org.e2immu.language.cst.api.element.SourceSet;
+import org.e2immu.language.cst.api.info.TypeInfo;
+import org.e2immu.language.inspection.api.resource.Resources;
+import org.e2immu.language.inspection.api.resource.SourceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * The class path of an inspector that shares the library types of another one: the shared class path, followed by
+ * the parts that only this inspector has. Lookups go to the shared layer first, exactly as if the entries of both
+ * had been added to a single <code>ResourcesImpl</code>, but the shared entries are neither copied nor indexed again.
+ * <p>
+ * All modifications go to the own layer. The shared layer is never modified, and never closed by this object.
+ * <p>
+ * The own layer must not contain types of the shared layer: the types of the shared layer refer to their own
+ * copy, so that a type of the own layer could never shadow it consistently. Use {@link #firstShadowingType()}
+ * to reject such a setup.
+ */
+public class LayeredResources implements Resources {
+
+    private final Resources shared;
+    private final Resources own;
+
+    public LayeredResources(Resources shared, Resources own) {
+        this.shared = shared;
+        this.own = own;
+    }
+
+    public Resources shared() {
+        return shared;
+    }
+
+    public Resources own() {
+        return own;
+    }
+
+    /**
+     * @return a primary type of the own layer that the shared layer also contains, or null when the layers
+     * do not overlap
+     */
+    public SourceFile firstShadowingType() {
+        Set<String> sharedPackages = shared.packages(".class");
+        for (String packageName : new TreeSet<>(own.packages(".class"))) {
+            if (sharedPackages.contains(packageName)) {
+                Set<String> sharedPaths = new HashSet<>();
+                shared.primaryTypesInPackage(packageName, ".class").forEach(sf -> sharedPaths.add(sf.path()));
+                for (SourceFile sourceFile : own.primaryTypesInPackage(packageName, ".class")) {
+                    if (sharedPaths.contains(sourceFile.path())) return sourceFile;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void addDirectoryFromFileSystem(File base, SourceSet sourceSet) {
+        own.addDirectoryFromFileSystem(base, sourceSet);
+    }
+
+    @Override
+    public String pathToFqn(String name) {
+        return own.pathToFqn(name);
+    }
+
+    @Override
+    public SourceFile sourceFileOfType(TypeInfo subType, String s) {
+        return own.sourceFileOfType(subType, s);
+    }
+
+    @Override
+    public Map<String, JarSize> getJarSizes() {
+        Map<String, JarSize> map = new HashMap<>(shared.getJarSizes());
+        map.putAll(own.getJarSizes());
+        return map;
+    }
+
+    @Override
+    public void visit(String[] prefix, BiConsumer<String[], List<SourceFile>> visitor) {
+        merge((s, v) -> s.visit(prefix, v), visitor);
+    }
+
+    @Override
+    public List<String[]> expandPaths(String path) {
+        List<String[]> expansions = new LinkedList<>();
+        merge((s, v) -> s.visit(path.split("\\."), v), (s, _) -> expansions.add(s));
+        return expansions;
+    }
+
+    @Override
+    public void expandPaths(String path, String extension, BiConsumer<String[], List<SourceFile>> visitor) {
+        merge((s, v) -> s.expandPaths(path, extension, v), visitor);
+    }
+
+    @Override
+    public void expandLeaves(String path, String extension, BiConsumer<String[], List<SourceFile>> visitor) {
+        merge((s, v) -> s.expandLeaves(path, extension, v), visitor);
+    }
+
+    /*
+    An entry present in both layers is visited once, with the source files of the shared layer first.
+     */
+    private void merge(BiConsumer<Resources, BiConsumer<String[], List<SourceFile>>> visit,
+                       BiConsumer<String[], List<SourceFile>> visitor) {
+        record Entry(String[] path, List<SourceFile> sourceFiles) {
+        }
+        Map<String, Entry> ownEntries = new LinkedHashMap<>();
+        visit.accept(own, (s, list) -> ownEntries.put(String.join("/", s), new Entry(s, list)));
+        visit.accept(shared, (s, list) -> {
+            Entry entry = ownEntries.remove(String.join("/", s));
+            if (entry == null) {
+                visitor.accept(s, list);
+            } else {
+                List<SourceFile> merged = new ArrayList<>(list.size() + entry.sourceFiles.size());
+                merged.addAll(list);
+                merged.addAll(entry.sourceFiles);
+                visitor.accept(s, merged);
+            }
+        });
+        ownEntries.values().forEach(entry -> visitor.accept(entry.path, entry.sourceFiles));
+    }
+
+    @Override
+    public boolean containsPackage(String packageName, String extension) {
+        return shared.containsPackage(packageName, extension) || own.containsPackage(packageName, extension);
+    }
+
+    @Override
+    public Set<String> packages(String extension) {
+        Set<String> packages = new HashSet<>(shared.packages(extension));
+        packages.addAll(own.packages(extension));
+        return Collections.unmodifiableSet(packages);
+    }
+
+    @Override
+    public List<SourceFile> primaryTypesInPackage(String packageName, String extension) {
+        List<SourceFile> ownList = own.primaryTypesInPackage(packageName, extension);
+        List<SourceFile> sharedList = shared.primaryTypesInPackage(packageName, extension);
+        if (ownList.isEmpty()) return sharedList;
+        if (sharedList.isEmpty()) return ownList;
+        SortedMap<String, SourceFile> byPath = new TreeMap<>();
+        sharedList.forEach(sf -> byPath.put(sf.path(), sf));
+        ownList.forEach(sf -> byPath.putIfAbsent(sf.path(), sf));
+        return List.copyOf(byPath.values());
+    }
+
+    @Override
+    public List<SourceFile> expandURLs(String extension) {
+        List<SourceFile> expansions = new LinkedList<>();
+        merge((s, v) -> s.visit(new String[0], v), (s, list) -> {
+            if (s[s.length - 1].endsWith(extension)) {
+                expansions.addAll(list);
+            }
+        });
+        return expansions;
+    }
+
+    @Override
+    public URL findJarInClassPath(String prefix) throws IOException {
+        return own.findJarInClassPath(prefix);
+    }
+
+    @Override
+    public void addTestProtocol(SourceFile testProtocol) {
+        own.addTestProtocol(testProtocol);
+    }
+
+    @Override
+    public int addJar(SourceFile jarSourceFile) throws IOException {
+        return own.addJar(jarSourceFile);
+    }
+
+    @Override
+    public int addJmod(SourceFile jmodSourceFile) throws IOException {
+        return own.addJmod(jmodSourceFile);
+    }
+
+    @Override
+    public int addJrt(SourceFile jrtSourceFile, Path alternativeJREDirectory) throws IOException {
+        return own.addJrt(jrtSourceFile, alternativeJREDirectory);
+    }
+
+    /*
+    When both layers know the name, the interpretation with the shortest package wins, as in a single trie.
+     */
+    @Override
+    public SourceFile fqnToPath(String fqn, String s) {
+        SourceFile inShared = shared.fqnToPath(fqn, s);
+        SourceFile inOwn = own.fqnToPath(fqn, s);
+        if (inShared == null) return inOwn;
+        if (inOwn == null) return inShared;
+        return depth(inOwn.path()) < depth(inShared.path()) ? inOwn : inShared;
+    }
+
+    private static long depth(String path) {
+        return path.chars().filter(c -> c == '/').count();
+    }
+
+    @Override
+    public byte[] loadBytes(String path) {
+        byte[] bytes = shared.loadBytes(path);
+        return bytes != null ? bytes : own.loadBytes(path);
+    }
+
+    @Override
+    public ByteBuffer loadByteBuffer(String path) {
+        ByteBuffer byteBuffer = shared.loadByteBuffer(path);
+        return byteBuffer != null ? byteBuffer : own.loadByteBuffer(path);
+    }
+
+    /**
+     * Closes the own layer only; the shared layer belongs to the inspector that shares it.
+     */
+    @Override
+    public void close() {
+        own.close();
+    }
+}
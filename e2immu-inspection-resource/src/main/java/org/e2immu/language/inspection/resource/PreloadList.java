@@ -0,0 +1,75 @@
+package org.e2immu.language.inspection.resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * The list of library types that a previous run has inspected, so that the next run can load them in one go.
+ * <p>
+ * The format is one line per package: the package name followed by the simple names of its primary types,
+ * separated by spaces, e.g. <code>java.util ArrayList HashMap List</code>.
+ */
+public class PreloadList {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreloadList.class);
+
+    private PreloadList() {
+    }
+
+    /**
+     * @return the fully qualified names in the list, or an empty list when the file does not exist
+     * or cannot be read
+     */
+    public static List<String> read(Path file) {
+        if (!Files.isRegularFile(file)) return List.of();
+        try {
+            List<String> result = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length < 2) continue;
+                String prefix = parts[0].isEmpty() ? "" : parts[0] + ".";
+                for (int i = 1; i < parts.length; i++) {
+                    result.add(prefix + parts[i]);
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read preload list {}: {}", file, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Failure to write is logged, but otherwise ignored.
+     *
+     * @param fullyQualifiedNames the fully qualified names of primary types
+     */
+    public static void write(Path file, Collection<String> fullyQualifiedNames) {
+        Map<String, SortedSet<String>> byPackage = new TreeMap<>();
+        for (String fqn : fullyQualifiedNames) {
+            int dot = fqn.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : fqn.substring(0, dot);
+            byPackage.computeIfAbsent(packageName, _ -> new TreeSet<>()).add(fqn.substring(dot + 1));
+        }
+        List<String> lines = byPackage.entrySet().stream()
+                .map(e -> e.getKey() + " " + String.join(" ", e.getValue()))
+                .toList();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote {} types in {} packages to preload list {}", fullyQualifiedNames.size(),
+                    lines.size(), file);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write preload list {}: {}", file, e.getMessage());
+        }
+    }
+}
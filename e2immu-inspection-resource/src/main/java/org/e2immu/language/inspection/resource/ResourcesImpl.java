@@ -1,31 +1,39 @@
 package org.e2immu.language.inspection.resource;
 
 import org.e2immu.language.cst.api.element.CompilationUnit;
+import org.e2immu.language.cst.api.element.FingerPrint;
 import org.e2immu.language.cst.api.element.SourceSet;
 import org.e2immu.language.cst.api.info.TypeInfo;
 import org.e2immu.language.inspection.api.resource.Resources;
 import org.e2immu.language.inspection.api.resource.SourceFile;
-import org.e2immu.util.internal.util.Trie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static org.e2immu.util.internal.util.StringUtil.replaceSlashDollar;
 
-public class ResourcesImpl implements Resources {
+public class ResourcesImpl implements Resources, AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ResourcesImpl.class);
 
     static class ResourceAccessException extends RuntimeException {
@@ -34,13 +42,44 @@ public class ResourcesImpl implements Resources {
         }
     }
 
-    private final Trie<SourceFile> data = new Trie<>();
+    private final SourceFileTrie data = new SourceFileTrie();
     private final Map<String, JarSize> jarSizes = new HashMap<>();
+    private final Map<String, JarFile> openJarFiles = new ConcurrentHashMap<>();
+    private final JrtFileSystem jrtFileSystem;
 
     private final Path workingDirectory;
+    private final ClassPathIndex classPathIndex;
+    private final boolean parallelScan;
 
     public ResourcesImpl(Path workingDirectory) {
+        this(workingDirectory, null, false);
+    }
+
+    /**
+     * @param workingDirectory the directory relative to which file URIs are made absolute
+     * @param classPathIndex   when not null, the entries of jars and jmods are read from and written to this index,
+     *                         rather than enumerated every time.
+     * @param parallelScan     scan directories on the file system with a fork-join pool
+     */
+    public ResourcesImpl(Path workingDirectory, ClassPathIndex classPathIndex, boolean parallelScan) {
+        this(workingDirectory, classPathIndex, parallelScan, new JrtFileSystem());
+    }
+
+    private ResourcesImpl(Path workingDirectory, ClassPathIndex classPathIndex, boolean parallelScan,
+                          JrtFileSystem jrtFileSystem) {
         this.workingDirectory = workingDirectory;
+        this.classPathIndex = classPathIndex;
+        this.parallelScan = parallelScan;
+        this.jrtFileSystem = jrtFileSystem;
+    }
+
+    /**
+     * A new, empty, resources object to be assembled concurrently with other parts, and then appended to this one
+     * with <code>addAll</code>. It shares the runtime image file system of this object, so that it is opened
+     * only once, and closed by closing this object.
+     */
+    public ResourcesImpl newPart() {
+        return new ResourcesImpl(workingDirectory, classPathIndex, parallelScan, jrtFileSystem);
     }
 
     private URI relativeToAbsolute(URI uri) {
@@ -54,6 +93,23 @@ public class ResourcesImpl implements Resources {
         return uri;
     }
 
+    /**
+     * Append all entries of another resources object, typically one that was assembled in parallel with this one.
+     * Entries already present take precedence over the ones being added, exactly as if the parts of the other
+     * object had been added to this one directly.
+     *
+     * @param other the resources to append, preferably created with <code>newPart</code>; it is not modified,
+     *              except that a runtime image file system that it opened is handed over to this object
+     */
+    public void addAll(ResourcesImpl other) {
+        data.addAll(other.data);
+        // as in addJar, the last jar with a given name wins
+        jarSizes.putAll(other.jarSizes);
+        if (other.jrtFileSystem != jrtFileSystem) {
+            jrtFileSystem.takeOver(other.jrtFileSystem);
+        }
+    }
+
     @Override
     public Map<String, JarSize> getJarSizes() {
         return jarSizes;
@@ -92,6 +148,21 @@ public class ResourcesImpl implements Resources {
         });
     }
 
+    @Override
+    public boolean containsPackage(String packageName, String extension) {
+        return data.containsPackage(packageName, extension);
+    }
+
+    @Override
+    public Set<String> packages(String extension) {
+        return data.packages(extension);
+    }
+
+    @Override
+    public List<SourceFile> primaryTypesInPackage(String packageName, String extension) {
+        return data.primaryEntriesInPackage(packageName, extension);
+    }
+
     @Override
     public List<SourceFile> expandURLs(String extension) {
         List<SourceFile> expansions = new LinkedList<>();
@@ -125,6 +196,9 @@ public class ResourcesImpl implements Resources {
     }
 
     private static final Pattern JAR_FILE = Pattern.compile("/([^/]+\\.jar)");
+    private static final Pattern JAR_URL_PATTERN = Pattern.compile("jar:(file:.+)!/");
+    private static final String JMOD_CLASSES = "classes/";
+    private static final String JRT_MODULES = "/modules";
 
     @Override
     public void addTestProtocol(SourceFile testProtocol) {
@@ -132,7 +206,7 @@ public class ResourcesImpl implements Resources {
         String fullyQualifiedName = s.substring(s.indexOf(':') + 1);
         String[] split = fullyQualifiedName.split("\\.");
         split[split.length - 1] = split[split.length - 1] + ".java";
-        data.add(split, testProtocol);
+        data.add(split, new SourceFileTrie.Single(testProtocol));
     }
 
     /**
@@ -145,37 +219,32 @@ public class ResourcesImpl implements Resources {
     @Override
     public int addJar(SourceFile jarSourceFile) throws IOException {
         URL url = relativeToAbsolute(jarSourceFile.uri()).toURL();
-        JarURLConnection jarConnection = (JarURLConnection) url.openConnection();
-        JarFile jarFile = jarConnection.getJarFile();
-        AtomicInteger entries = new AtomicInteger();
-        AtomicInteger errors = new AtomicInteger();
-        jarFile.stream().forEach(je -> {
-            String realName = je.getRealName();
+        Path container = containerPath(url);
+        FingerPrint fingerPrint = fingerPrintOrNull(jarSourceFile);
+        List<String> realNames = loadFromIndex(container, fingerPrint);
+        String jarFileName;
+        if (realNames == null) {
+            JarURLConnection jarConnection = (JarURLConnection) url.openConnection();
+            JarFile jarFile = jarConnection.getJarFile();
             // let's exclude XML files, etc., anything not Java-related
-            if (realName.endsWith(".class") || realName.endsWith(".java")) {
-                LOGGER.trace("Adding {}", realName);
-                String[] split = je.getRealName().split("/");
-                try {
-                    URI fullUrl = new URL(url, je.getRealName()).toURI();
-                    data.add(split, jarSourceFile.withURI(fullUrl));
-                    entries.incrementAndGet();
-                } catch (MalformedURLException | URISyntaxException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        });
+            realNames = jarFile.stream().map(JarEntry::getRealName)
+                    .filter(realName -> realName.endsWith(".class") || realName.endsWith(".java"))
+                    .toList();
+            storeInIndex(container, fingerPrint, realNames);
+            jarFileName = jarFile.getName();
+        } else {
+            jarFileName = container.toString();
+        }
+        int entries = addEntries(url, realNames, "", jarSourceFile);
         String jarName;
-        Matcher m = JAR_FILE.matcher(jarFile.getName());
+        Matcher m = JAR_FILE.matcher(jarFileName);
         if (m.find()) {
             jarName = m.group(1);
         } else {
             jarName = url.toString();
         }
-        jarSizes.put(jarName, new JarSize(entries.get(), 0));
-        if (errors.get() > 0) {
-            throw new IOException("Got " + errors.get() + " errors while adding from jar to classpath");
-        }
-        return entries.get();
+        jarSizes.put(jarName, new JarSize(entries, 0));
+        return entries;
     }
 
     public static URL constructJModURL(String part, Path altJREDirectory) throws MalformedURLException {
@@ -192,32 +261,191 @@ public class ResourcesImpl implements Resources {
         return new URL("jar:file:" + jre + "jmods/" + part + ".jmod!/");
     }
 
-
     @Override
     public int addJmod(SourceFile jmodSourceFile) throws IOException {
         URL jmodUrl = jmodSourceFile.uri().toURL();
-        JarURLConnection jarConnection = (JarURLConnection) jmodUrl.openConnection();
-        JarFile jarFile = jarConnection.getJarFile();
-        AtomicInteger entries = new AtomicInteger();
-        AtomicInteger errors = new AtomicInteger();
-        jarFile.stream()
-                .filter(je -> je.getRealName().startsWith("classes/"))
-                .forEach(je -> {
-                    String realName = je.getRealName().substring("classes/".length());
-                    LOGGER.trace("Adding {}", realName);
-                    String[] split = realName.split("/");
-                    try {
-                        URL fullUrl = new URL(jmodUrl, je.getRealName());
-                        data.add(split, jmodSourceFile.withURI(fullUrl.toURI()));
-                        entries.incrementAndGet();
-                    } catch (MalformedURLException | URISyntaxException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-        if (errors.get() > 0) {
-            throw new IOException("Got " + errors.get() + " errors while adding from jar to classpath");
+        Path container = containerPath(jmodUrl);
+        FingerPrint fingerPrint = fingerPrintOrNull(jmodSourceFile);
+        List<String> realNames = loadFromIndex(container, fingerPrint);
+        if (realNames == null) {
+            JarURLConnection jarConnection = (JarURLConnection) jmodUrl.openConnection();
+            JarFile jarFile = jarConnection.getJarFile();
+            realNames = jarFile.stream().map(JarEntry::getRealName)
+                    .filter(realName -> realName.startsWith(JMOD_CLASSES))
+                    .toList();
+            storeInIndex(container, fingerPrint, realNames);
         }
-        return entries.get();
+        return addEntries(jmodUrl, realNames, JMOD_CLASSES, jmodSourceFile);
+    }
+
+    /**
+     * Add the classes of a module of the Java runtime image, via the <code>jrt:/</code> file system.
+     * Contrary to jmods, the runtime image is present in every JDK and JRE, and it is not compressed.
+     *
+     * @param jrtSourceFile           the path must be the name of the module, e.g. <code>java.base</code>
+     * @param alternativeJREDirectory when not null, the runtime image of this JDK is used rather than the
+     *                                one of the current JVM.
+     * @return the number of entries added to the classpath
+     * @throws IOException when the module cannot be found, or the runtime image cannot be read.
+     */
+    @Override
+    public int addJrt(SourceFile jrtSourceFile, Path alternativeJREDirectory) throws IOException {
+        FileSystem fileSystem = jrtFileSystem.get(alternativeJREDirectory);
+        String module = jrtSourceFile.path();
+        Path moduleRoot = fileSystem.getPath(JRT_MODULES, module);
+        if (!Files.isDirectory(moduleRoot)) {
+            throw new IOException("Module " + module + " not found in the runtime image");
+        }
+        List<Path> classFiles;
+        try (Stream<Path> stream = Files.walk(moduleRoot)) {
+            classFiles = stream.filter(p -> p.toString().endsWith(".class")).toList();
+        }
+        JrtOrigin origin = new JrtOrigin(module, jrtSourceFile);
+        for (Path classFile : classFiles) {
+            String name = moduleRoot.relativize(classFile).toString();
+            LOGGER.trace("Adding {}", name);
+            data.add(name.split("/"), origin);
+        }
+        return classFiles.size();
+    }
+
+    /*
+    The runtime image file system, shared by a resources object and its parts. The one of the current JVM
+    is a singleton that cannot be closed; the one of an alternative JRE is created, and closed, here.
+    The first request decides which runtime image is used. After closing, it is re-opened on demand.
+     */
+    private static final class JrtFileSystem {
+        private boolean requested;
+        private Path alternativeJREDirectory;
+        private FileSystem fileSystem;
+
+        synchronized FileSystem get(Path alternativeJREDirectory) throws IOException {
+            if (!requested) {
+                requested = true;
+                this.alternativeJREDirectory = alternativeJREDirectory;
+            }
+            return open();
+        }
+
+        // null when the runtime image has never been requested
+        synchronized FileSystem getIfRequested() throws IOException {
+            return requested ? open() : null;
+        }
+
+        private FileSystem open() throws IOException {
+            if (fileSystem == null) {
+                URI jrt = URI.create("jrt:/");
+                if (alternativeJREDirectory == null) {
+                    fileSystem = FileSystems.getFileSystem(jrt);
+                } else {
+                    fileSystem = FileSystems.newFileSystem(jrt, Map.of("java.home",
+                            alternativeJREDirectory.toString()));
+                }
+            }
+            return fileSystem;
+        }
+
+        synchronized void takeOver(JrtFileSystem other) {
+            synchronized (other) {
+                if (!requested && other.requested) {
+                    requested = true;
+                    alternativeJREDirectory = other.alternativeJREDirectory;
+                    fileSystem = other.fileSystem;
+                    other.requested = false;
+                    other.alternativeJREDirectory = null;
+                    other.fileSystem = null;
+                }
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (fileSystem != null && alternativeJREDirectory != null) {
+                fileSystem.close();
+            }
+            fileSystem = null;
+        }
+    }
+
+    // maps the URI of a class in the runtime image back onto the file system it came from
+    private Path jrtPath(URI uri) throws IOException {
+        FileSystem fileSystem = jrtFileSystem.getIfRequested();
+        if (fileSystem == null) return Path.of(uri);
+        return fileSystem.getPath(JRT_MODULES + uri.getPath());
+    }
+
+    private int addEntries(URL containerUrl, List<String> realNames, String prefixToStrip, SourceFile containerSourceFile) {
+        JarOrigin origin = new JarOrigin(containerUrl, prefixToStrip, containerSourceFile);
+        for (String realName : realNames) {
+            String name = realName.substring(prefixToStrip.length());
+            LOGGER.trace("Adding {}", name);
+            data.add(name.split("/"), origin);
+        }
+        return realNames.size();
+    }
+
+    /*
+    All entries of a jar or jmod share the same origin; their URI is computed on demand.
+     */
+    private record JarOrigin(URL containerUrl, String prefix, SourceFile containerSourceFile)
+            implements SourceFileTrie.Origin {
+        @Override
+        public SourceFile sourceFile(String[] path) {
+            String realName = prefix + String.join("/", path);
+            try {
+                return containerSourceFile.withURI(new URL(containerUrl, realName).toURI());
+            } catch (MalformedURLException | URISyntaxException e) {
+                throw new ResourceAccessException("Cannot construct URL for " + realName + " in " + containerUrl
+                                                  + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private record JrtOrigin(String module, SourceFile moduleSourceFile) implements SourceFileTrie.Origin {
+        @Override
+        public SourceFile sourceFile(String[] path) {
+            try {
+                return moduleSourceFile.withURI(new URI("jrt", "/" + module + "/" + String.join("/", path), null));
+            } catch (URISyntaxException e) {
+                throw new ResourceAccessException("Cannot construct URI for " + String.join("/", path)
+                                                  + " in module " + module + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static FingerPrint fingerPrintOrNull(SourceFile containerSourceFile) {
+        SourceSet sourceSet = containerSourceFile.sourceSet();
+        return sourceSet == null ? null : sourceSet.fingerPrintOrNull();
+    }
+
+    private List<String> loadFromIndex(Path container, FingerPrint fingerPrint) {
+        if (classPathIndex == null || container == null) return null;
+        List<String> realNames = classPathIndex.load(container, fingerPrint);
+        if (realNames != null) {
+            LOGGER.debug("Loaded {} entries of {} from the class path index", realNames.size(), container);
+        }
+        return realNames;
+    }
+
+    private void storeInIndex(Path container, FingerPrint fingerPrint, List<String> realNames) {
+        if (classPathIndex != null && container != null) {
+            classPathIndex.store(container, fingerPrint, realNames);
+        }
+    }
+
+    /**
+     * @param jarUrl a URL of the form <code>jar:file:/some/path.jar!/</code>
+     * @return the path of the jar or jmod file, or null when the URL does not point to the local file system.
+     */
+    public static Path containerPath(URL jarUrl) {
+        Matcher m = JAR_URL_PATTERN.matcher(jarUrl.toString());
+        if (m.matches()) {
+            try {
+                return Path.of(new URI(m.group(1)));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOGGER.debug("Cannot convert {} into a path", jarUrl);
+            }
+        }
+        return null;
     }
 
     @Override
@@ -235,23 +463,11 @@ public class ResourcesImpl implements Resources {
 
     @Override
     public SourceFile fqnToPath(String fqn, String extension) {
-        String[] splitDot = fqn.split("\\.");
-        for (int i = 1; i < splitDot.length; i++) {
-            String[] parts = new String[i + 1];
-            System.arraycopy(splitDot, 0, parts, 0, i);
-            parts[i] = splitDot[i];
-            for (int j = i + 1; j < splitDot.length; j++) {
-                parts[i] += "$" + splitDot[j];
-            }
-            parts[i] += extension;
-            List<SourceFile> sourceFiles = data.get(parts);
-            if (sourceFiles != null && !sourceFiles.isEmpty()) {
-                SourceFile sf0 = sourceFiles.getFirst();
-                return sf0.withPath(String.join("/", parts));
-            }
+        SourceFile sourceFile = data.findByName(fqn, extension);
+        if (sourceFile == null) {
+            LOGGER.debug("Cannot find {} with extension {} in classpath", fqn, extension);
         }
-        LOGGER.debug("Cannot find {} with extension {} in classpath", fqn, extension);
-        return null;
+        return sourceFile;
     }
 
     // could have been static, but allows for overrides
@@ -275,63 +491,162 @@ public class ResourcesImpl implements Resources {
         return replaceSlashDollar(stripDotClass);
     }
 
+    /**
+     * Goes through <code>loadByteBuffer</code>. The array of the heap buffer is returned as is when it holds
+     * exactly the resource, which is the case unless the file shrank while it was being read.
+     */
     @Override
     public byte[] loadBytes(String path) {
-        String[] prefix = path.split("/");
-        List<SourceFile> sourceFiles = data.get(prefix);
-        if (sourceFiles != null) {
-            for (SourceFile sourceFile : sourceFiles) {
-                URI absolute = relativeToAbsolute(sourceFile.uri());
-                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                     InputStream inputStream = absolute.toURL().openStream()) {
-                    inputStream.transferTo(byteArrayOutputStream);
-                    return byteArrayOutputStream.toByteArray();
-                } catch (IOException e) {
-                    throw new ResourceAccessException("URI = " + absolute + ", from " + workingDirectory
-                                                      + " and " + sourceFile.uri() + ", Cannot read? " + e.getMessage());
+        ByteBuffer byteBuffer = loadByteBuffer(path);
+        if (byteBuffer == null) return null;
+        if (byteBuffer.remaining() == byteBuffer.array().length) {
+            return byteBuffer.array();
+        }
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads the resource into an exactly-sized heap buffer. Local files are read through a channel; they are
+     * not memory-mapped, because a mapping keeps the file locked (on Windows) until the buffer is garbage
+     * collected, and class files are too small for mapping to pay off.
+     */
+    @Override
+    public ByteBuffer loadByteBuffer(String path) {
+        URI absolute = absoluteURIOfFirst(path);
+        if (absolute == null) return null;
+        try {
+            if ("file".equals(absolute.getScheme())) {
+                try (FileChannel channel = FileChannel.open(Path.of(absolute), StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    ByteBuffer byteBuffer = ByteBuffer.allocate(Math.toIntExact(size));
+                    while (byteBuffer.hasRemaining() && channel.read(byteBuffer) >= 0) {
+                        // keep reading until the buffer is full, or the end of the file
+                    }
+                    return byteBuffer.flip();
                 }
             }
+            return ByteBuffer.wrap(readBytes(absolute));
+        } catch (IOException | UncheckedIOException e) {
+            throw new ResourceAccessException("URI = " + absolute + ", from " + workingDirectory
+                                              + ", Cannot read? " + e.getMessage());
+        }
+    }
+
+    private URI absoluteURIOfFirst(String path) {
+        String[] prefix = path.split("/");
+        SourceFile sourceFile = data.getFirst(prefix);
+        if (sourceFile != null) {
+            return relativeToAbsolute(sourceFile.uri());
         }
         LOGGER.debug("{} not found in class path", path);
         return null;
     }
 
+    /*
+    Entries of jars and jmods are read from a JarFile that stays open for the lifetime of this object,
+    rather than through a JarURLConnection per entry. Anything else goes through the URL.
+     */
+    private byte[] readBytes(URI uri) throws IOException {
+        switch (uri.getScheme()) {
+            case "jar" -> {
+                String schemeSpecificPart = uri.getSchemeSpecificPart();
+                int bangSlash = schemeSpecificPart.indexOf("!/");
+                if (bangSlash > 0) {
+                    JarFile jarFile = openJarFile(schemeSpecificPart.substring(0, bangSlash));
+                    if (jarFile != null) {
+                        String entryName = schemeSpecificPart.substring(bangSlash + 2);
+                        ZipEntry entry = jarFile.getEntry(entryName);
+                        if (entry == null) {
+                            throw new IOException("Entry " + entryName + " not found in " + jarFile.getName());
+                        }
+                        try (InputStream inputStream = jarFile.getInputStream(entry)) {
+                            return readExactly(inputStream, entry.getSize());
+                        }
+                    }
+                }
+            }
+            case "file" -> {
+                return Files.readAllBytes(Path.of(uri));
+            }
+            case "jrt" -> {
+                return Files.readAllBytes(jrtPath(uri));
+            }
+            case null, default -> {
+                // fall through to the URL
+            }
+        }
+        try (InputStream inputStream = uri.toURL().openStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static byte[] readExactly(InputStream inputStream, long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            return inputStream.readAllBytes();
+        }
+        byte[] bytes = new byte[(int) size];
+        int read = inputStream.readNBytes(bytes, 0, bytes.length);
+        if (read != bytes.length) {
+            throw new IOException("Expected " + size + " bytes, got " + read);
+        }
+        return bytes;
+    }
+
+    private JarFile openJarFile(String containerURIString) {
+        return openJarFiles.computeIfAbsent(containerURIString, s -> {
+            try {
+                Path container = Path.of(new URI(s));
+                LOGGER.debug("Opening {}", container);
+                return new JarFile(container.toFile(), false);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOGGER.debug("Cannot convert {} into a path, will use URL", s);
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Close all jar and jmod files that have been opened by <code>loadBytes</code>, and the runtime image file
+     * system of an alternative JRE. They will be re-opened on demand.
+     */
     @Override
-    public void addDirectoryFromFileSystem(File base, SourceSet sourceSet) {
-        File file = new File("");
+    public void close() {
+        for (JarFile jarFile : openJarFiles.values()) {
+            try {
+                jarFile.close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close {}: {}", jarFile.getName(), e.getMessage());
+            }
+        }
+        openJarFiles.clear();
         try {
-            recursivelyAddFiles(base, file, sourceSet);
-        } catch (MalformedURLException e) {
-            throw new UnsupportedOperationException("??");
+            jrtFileSystem.close();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot close the runtime image file system: {}", e.getMessage());
         }
     }
 
-    private void recursivelyAddFiles(File baseDirectory, File dirRelativeToBase, SourceSet sourceSet)
-            throws MalformedURLException {
-        File dir = new File(baseDirectory, dirRelativeToBase.getPath());
-        if (dir.isDirectory()) {
-            File[] subDirs = dir.listFiles(File::isDirectory);
-            if (subDirs != null) {
-                for (File subDir : subDirs) { // 1.0.1.0.0
-                    recursivelyAddFiles(baseDirectory, new File(dirRelativeToBase, subDir.getName()), sourceSet);
-                }
-            }
-            File[] files = dir.listFiles(f -> !f.isDirectory());
-            if (files != null) { // 1.0.3
-                String pathString = dirRelativeToBase.getPath(); // 1.0.3.0.0
-                String[] packageParts =
-                        pathString.isEmpty() ? new String[0] :
-                                (pathString.startsWith("/") ? pathString.substring(1) : pathString)
-                                        .split("/");
-                for (File file : files) {
-                    String name = file.getName();
-                    String packageName = String.join(".", packageParts);
-                    LOGGER.debug("File {} in package {}", name, packageName);
-                    if (sourceSet.acceptSource(packageName, Resources.stripNameSuffix(name))) {
-                        data.add(Stream.concat(Arrays.stream(packageParts), Stream.of(name)).toArray(String[]::new),
-                                new SourceFile(file.getPath(), file.toURI(), sourceSet, null));
-                    }
-                }
+    @Override
+    public void addDirectoryFromFileSystem(File base, SourceSet sourceSet) {
+        List<SourceDirectoryScanner.Entry> entries;
+        try {
+            entries = new SourceDirectoryScanner(parallelScan).scan(base.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (SourceDirectoryScanner.Entry entry : entries) {
+            String packageName = String.join(".", entry.packageParts());
+            LOGGER.debug("File {} in package {}", entry.name(), packageName);
+            if (sourceSet.acceptSource(packageName, Resources.stripNameSuffix(entry.name()))) {
+                String[] path = Arrays.copyOf(entry.packageParts(), entry.packageParts().length + 1);
+                path[entry.packageParts().length] = entry.name();
+                SourceFile sourceFile = new SourceFile(entry.path().toString(), entry.uri(), sourceSet, null,
+                        entry.size(), entry.lastModified());
+                data.add(path, new SourceFileTrie.Single(sourceFile));
             }
         }
     }
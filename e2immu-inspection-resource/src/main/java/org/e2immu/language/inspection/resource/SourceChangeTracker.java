@@ -0,0 +1,158 @@
+package org.e2immu.language.inspection.resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches source directories, and all their subdirectories, for changes.
+ * <p>
+ * The tracker keeps a set of dirty paths: files that have been added, modified or deleted, and directories that
+ * have been deleted, since the last call to {@link #drain()}. Events arrive asynchronously, and a single save
+ * in an editor may produce several; when changes are pending, {@link #drain(Duration, Duration)} waits until
+ * the file system is quiet. It does not interpret the changes: the file system is the authority on whether
+ * a dirty path still exists.
+ * When the watch service loses events, or a directory cannot be registered, the tracker reports an overflow,
+ * and the caller must fall back to a full scan.
+ */
+public class SourceChangeTracker implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceChangeTracker.class);
+
+    /**
+     * @param paths    the absolute paths that have changed; no particular order
+     * @param overflow true when changes may have been lost
+     */
+    public record Changes(Set<Path> paths, boolean overflow) {
+        public boolean isEmpty() {
+            return paths.isEmpty() && !overflow;
+        }
+    }
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Thread thread;
+    private Set<Path> dirty = new HashSet<>();
+    private boolean overflow;
+    // System.nanoTime() of the most recent event
+    private long lastEvent = System.nanoTime();
+
+    public SourceChangeTracker(List<Path> roots) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : roots) {
+            registerRecursively(root.toAbsolutePath(), false);
+        }
+        thread = Thread.ofPlatform().daemon().name("source-change-tracker").start(this::run);
+        LOGGER.info("Watching {} directories for source changes", directories.size());
+    }
+
+    /**
+     * Drain, after waiting until no event has arrived for the quiet period. When no changes are pending,
+     * return at once: events of changes made just before the call that have not arrived yet, are reported
+     * by the next call.
+     *
+     * @param quietPeriod the time without events that is required
+     * @param maxWait     drain after this time, even when events keep arriving
+     * @return the changes since the previous call
+     */
+    public synchronized Changes drain(Duration quietPeriod, Duration maxWait) {
+        if (dirty.isEmpty() && !overflow) return new Changes(Set.of(), false);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long quietUntil = lastEvent + quietPeriod.toNanos();
+                long until = quietUntil - deadline < 0 ? quietUntil : deadline;
+                if (now - until >= 0) break;
+                // releases the lock, so that the watching thread can record events
+                wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(until - now)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return drain();
+    }
+
+    /**
+     * @return the changes since the previous call
+     */
+    public synchronized Changes drain() {
+        Changes changes = new Changes(Set.copyOf(dirty), overflow);
+        dirty = new HashSet<>();
+        overflow = false;
+        return changes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW || directory == null) {
+                        markOverflow();
+                    } else {
+                        Path path = directory.resolve((Path) event.context());
+                        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            // files may have been created before the directory was registered
+                            registerRecursively(path, true);
+                        } else {
+                            markDirty(path);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching source directories");
+        }
+    }
+
+    private void registerRecursively(Path root, boolean markFilesDirty) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    directories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (markFilesDirty) markDirty(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Cannot watch {}: {}", root, e.getMessage());
+            markOverflow();
+        }
+    }
+
+    private synchronized void markDirty(Path path) {
+        dirty.add(path);
+        lastEvent = System.nanoTime();
+    }
+
+    private synchronized void markOverflow() {
+        overflow = true;
+        lastEvent = System.nanoTime();
+    }
+}
@@ -0,0 +1,148 @@
+package org.e2immu.language.inspection.resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lists all files below a base directory, reading the attributes of every file exactly once.
+ * <p>
+ * In sequential mode, the scan is a single <code>Files.walkFileTree</code>. In parallel mode, every directory
+ * becomes a fork-join task that lists its content with a <code>DirectoryStream</code>, and forks a task for
+ * each of its subdirectories.
+ * Symbolic links to directories are followed; directories that are reached twice are ignored.
+ * Directories that cannot be read are logged and skipped.
+ */
+public class SourceDirectoryScanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceDirectoryScanner.class);
+
+    /**
+     * @param packageParts the path of the directory of the file, relative to the base directory
+     * @param name         the file name
+     * @param path         the path of the file, i.e., the base directory resolved with the package parts and name
+     * @param uri          the URI of the file, identical to the one of <code>File.toURI()</code>
+     */
+    public record Entry(String[] packageParts, String name, Path path, URI uri, long size, long lastModified) {
+    }
+
+    private final boolean parallel;
+
+    public SourceDirectoryScanner(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public List<Entry> scan(Path baseDirectory) throws IOException {
+        if (parallel) {
+            Set<Object> visited = ConcurrentHashMap.newKeySet();
+            return ForkJoinPool.commonPool().invoke(new ScanTask(baseDirectory, new String[0], visited));
+        }
+        List<Entry> entries = new ArrayList<>();
+        Files.walkFileTree(baseDirectory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<>() {
+                    private final Deque<String> packageParts = new ArrayDeque<>();
+                    private int depth;
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (depth++ > 0) packageParts.addLast(dir.getFileName().toString());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                        if (--depth > 0) packageParts.removeLast();
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!attrs.isDirectory()) {
+                            entries.add(entry(packageParts.toArray(String[]::new), file, attrs));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        LOGGER.warn("Cannot read {}: {}", file, exc.toString());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        return entries;
+    }
+
+    private static class ScanTask extends RecursiveTask<List<Entry>> {
+        private final Path directory;
+        private final String[] packageParts;
+        private final Set<Object> visited;
+
+        ScanTask(Path directory, String[] packageParts, Set<Object> visited) {
+            this.directory = directory;
+            this.packageParts = packageParts;
+            this.visited = visited;
+        }
+
+        @Override
+        protected List<Entry> compute() {
+            List<Entry> entries = new ArrayList<>();
+            List<ScanTask> subTasks = new ArrayList<>();
+            try {
+                BasicFileAttributes dirAttributes = Files.readAttributes(directory, BasicFileAttributes.class);
+                Object fileKey = dirAttributes.fileKey();
+                if (fileKey != null && !visited.add(fileKey)) {
+                    return entries;
+                }
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path path : stream) {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        if (attributes.isDirectory()) {
+                            String[] subPackageParts = Arrays.copyOf(packageParts, packageParts.length + 1);
+                            subPackageParts[packageParts.length] = path.getFileName().toString();
+                            ScanTask subTask = new ScanTask(path, subPackageParts, visited);
+                            subTask.fork();
+                            subTasks.add(subTask);
+                        } else {
+                            entries.add(entry(packageParts, path, attributes));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Cannot read {}: {}", directory, e.toString());
+            }
+            for (ScanTask subTask : subTasks) {
+                entries.addAll(subTask.join());
+            }
+            return entries;
+        }
+    }
+
+    private static Entry entry(String[] packageParts, Path file, BasicFileAttributes attributes) {
+        return new Entry(packageParts, file.getFileName().toString(), file, fileUri(file),
+                attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /*
+    Same result as File.toURI() for a file that is not a directory, without the additional file system access.
+     */
+    public static URI fileUri(Path file) {
+        String p = file.toAbsolutePath().toString();
+        if (File.separatorChar != '/') p = p.replace(File.separatorChar, '/');
+        if (!p.startsWith("/")) p = "/" + p;
+        if (p.startsWith("//")) p = "//" + p;
+        try {
+            return new URI("file", null, p, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package org.e2immu.language.inspection.resource;
+
+import org.e2immu.language.inspection.api.resource.SourceFile;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Memory-compact replacement for <code>Trie&lt;SourceFile&gt;</code>, holding the class path or source path.
+ * <p>
+ * Segment strings are interned per trie, children are kept in sorted parallel arrays, and entries do not store
+ * a <code>SourceFile</code> object: they refer to the {@link Origin} they came from (a jar, a jmod, a module of the
+ * runtime image), which computes the <code>SourceFile</code> from the path on demand.
+ * <p>
+ * Next to the trie, a hash index maps binary and canonical type names onto entries, so that finding the entry
+ * of a type does not require probing the trie for every possible package/nested type boundary.
+ * A second index maps package names onto the entries of their primary types. Both indices refer to the nodes
+ * of the trie; a node knows its parent, so that its path can be computed when needed. The source file that
+ * a lookup by name returns is computed once per node, and cached.
+ * <p>
+ * Modifications must not run concurrently with other operations; concurrent reads are safe.
+ */
+public class SourceFileTrie {
+
+    /**
+     * The container of an entry. Computes the source file of an entry from its path in the trie.
+     */
+    @FunctionalInterface
+    public interface Origin {
+        SourceFile sourceFile(String[] path);
+    }
+
+    /**
+     * Origin of a single entry, e.g. a file in a directory.
+     */
+    public record Single(SourceFile sourceFile) implements Origin {
+        @Override
+        public SourceFile sourceFile(String[] path) {
+            return sourceFile;
+        }
+    }
+
+    private static final String[] NO_NAMES = new String[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private static final class Node {
+        final Node parent;
+        final String name;
+        String[] names = NO_NAMES;
+        Node[] children = NO_NODES;
+        // null, an Origin, or an Origin[]
+        Object origins;
+        // the first source file, with its path set; computed on demand. Records are safely published.
+        SourceFile named;
+
+        Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        boolean isLeaf() {
+            return names.length == 0;
+        }
+
+        Node child(String name) {
+            int index = Arrays.binarySearch(names, name);
+            return index < 0 ? null : children[index];
+        }
+
+        Node getOrCreateChild(String name) {
+            int index = Arrays.binarySearch(names, name);
+            if (index >= 0) return children[index];
+            int insert = -(index + 1);
+            int n = names.length;
+            String[] newNames = new String[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(names, 0, newNames, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(names, insert, newNames, insert + 1, n - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, n - insert);
+            Node node = new Node(this, name);
+            newNames[insert] = name;
+            newChildren[insert] = node;
+            names = newNames;
+            children = newChildren;
+            return node;
+        }
+
+        void addOrigin(Origin origin) {
+            switch (origins) {
+                case null -> origins = origin;
+                case Origin single -> origins = new Origin[]{single, origin};
+                case Origin[] array -> {
+                    Origin[] newArray = Arrays.copyOf(array, array.length + 1);
+                    newArray[array.length] = origin;
+                    origins = newArray;
+                }
+                default -> throw unexpected();
+            }
+        }
+
+        int size() {
+            return switch (origins) {
+                case null -> 0;
+                case Origin _ -> 1;
+                case Origin[] array -> array.length;
+                default -> throw unexpected();
+            };
+        }
+
+        // origins is private to this class, and only ever holds one of the three cases above
+        private IllegalStateException unexpected() {
+            return new IllegalStateException("Unexpected origins of type " + origins.getClass());
+        }
+
+        Origin origin(int i) {
+            return origins instanceof Origin[] array ? array[i] : (Origin) origins;
+        }
+
+        String[] path() {
+            int depth = depth(this);
+            String[] path = new String[depth];
+            for (Node n = this; n.parent != null; n = n.parent) path[--depth] = n.name;
+            return path;
+        }
+
+        /*
+        Origins are only appended, so the first source file does not change once computed.
+         */
+        SourceFile named() {
+            SourceFile sf = named;
+            if (sf == null) {
+                String[] path = path();
+                sf = origin(0).sourceFile(path).withPath(String.join("/", path));
+                named = sf;
+            }
+            return sf;
+        }
+    }
+
+    private final Node root = new Node(null, null);
+    private final Map<String, String> interned = new HashMap<>();
+    /*
+    extension -> (binary name or canonical name -> entry)
+    e.g. ".class" -> "java.util.Map$Entry" -> java/util/Map$Entry.class, and "java.util.Map.Entry" -> idem.
+     */
+    private final Map<String, Map<String, Node>> nameIndex = new HashMap<>();
+    /*
+    extension -> (package name -> (name in the trie -> entry)), for entries whose name does not contain a '$'
+    e.g. ".class" -> "java.util" -> "Map.class" -> java/util/Map.class
+    The names in the trie sort as the simple names do, since identifiers do not contain characters below '.'.
+     */
+    private final Map<String, Map<String, SortedMap<String, Node>>> packageIndex = new HashMap<>();
+
+    private String intern(String s) {
+        String prev = interned.putIfAbsent(s, s);
+        return prev == null ? s : prev;
+    }
+
+    public void add(String[] path, Origin origin) {
+        Node node = root;
+        String[] internedPath = new String[path.length];
+        for (int i = 0; i < path.length; i++) {
+            internedPath[i] = intern(path[i]);
+            node = node.getOrCreateChild(internedPath[i]);
+        }
+        if (node.origins == null) {
+            index(internedPath, node);
+        }
+        node.addOrigin(origin);
+    }
+
+    /*
+    A name can denote more than one entry, e.g. a.b.C.D can be a/b/C$D.class or a/b/C/D.class.
+    As in the Java language, the interpretation with the shortest package wins.
+     */
+    private void index(String[] path, Node node) {
+        int n = path.length;
+        if (n == 0) return;
+        String last = path[n - 1];
+        int dot = last.lastIndexOf('.');
+        if (dot <= 0) return;
+        String extension = last.substring(dot);
+        String simpleName = last.substring(0, dot);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n - 1; i++) {
+            sb.append(path[i]).append('.');
+        }
+        String packagePrefix = sb.toString();
+        Map<String, Node> map = nameIndex.computeIfAbsent(intern(extension), _ -> new HashMap<>());
+        map.merge(packagePrefix + simpleName, node, SourceFileTrie::shortestPackage);
+        if (simpleName.indexOf('$') > 0) {
+            map.merge(packagePrefix + simpleName.replace('$', '.'), node, SourceFileTrie::shortestPackage);
+        } else {
+            String packageName = packagePrefix.isEmpty() ? "" : packagePrefix.substring(0, packagePrefix.length() - 1);
+            packageIndex.computeIfAbsent(intern(extension), _ -> new HashMap<>())
+                    .computeIfAbsent(intern(packageName), _ -> new TreeMap<>())
+                    .put(last, node);
+        }
+    }
+
+    private static Node shortestPackage(Node n1, Node n2) {
+        return depth(n1) <= depth(n2) ? n1 : n2;
+    }
+
+    private static int depth(Node node) {
+        int depth = 0;
+        for (Node n = node; n.parent != null; n = n.parent) ++depth;
+        return depth;
+    }
+
+    /**
+     * Append all entries of the other trie. Entries already present come first.
+     */
+    public void addAll(SourceFileTrie other) {
+        addAll(root, other.root, new ArrayList<>());
+    }
+
+    private void addAll(Node target, Node source, List<String> path) {
+        if (target.origins == null && source.origins != null) {
+            index(path.toArray(String[]::new), target);
+        }
+        for (int i = 0; i < source.size(); i++) {
+            target.addOrigin(source.origin(i));
+        }
+        for (int i = 0; i < source.names.length; i++) {
+            String name = intern(source.names[i]);
+            path.add(name);
+            addAll(target.getOrCreateChild(name), source.children[i], path);
+            path.removeLast();
+        }
+    }
+
+    private Node goTo(String[] path) {
+        Node node = root;
+        for (String s : path) {
+            node = node.child(s);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    /**
+     * @return null when there is no such entry, the source files in order of addition otherwise
+     */
+    public List<SourceFile> get(String[] path) {
+        Node node = goTo(path);
+        if (node == null || node.origins == null) return null;
+        return sourceFiles(node, path);
+    }
+
+    /**
+     * Direct lookup by binary name (<code>a.b.C$D</code>) or canonical name (<code>a.b.C.D</code>).
+     *
+     * @param name      the name of the type, without extension
+     * @param extension the extension of the entry, including the dot, e.g. <code>.class</code>
+     * @return the first source file of the entry, with its path set to the path of the entry,
+     * or null when there is no such entry. Repeated lookups return the same object.
+     */
+    public SourceFile findByName(String name, String extension) {
+        Map<String, Node> map = nameIndex.get(extension);
+        if (map == null) return null;
+        Node node = map.get(name);
+        return node == null ? null : node.named();
+    }
+
+    /**
+     * @param packageName the name of the package, e.g. <code>java.util</code>
+     * @param extension   the extension of the entries, including the dot, e.g. <code>.class</code>
+     * @return true when the package contains at least one entry with that extension whose name does not contain '$'
+     */
+    public boolean containsPackage(String packageName, String extension) {
+        Map<String, SortedMap<String, Node>> map = packageIndex.get(extension);
+        return map != null && map.containsKey(packageName);
+    }
+
+    /**
+     * @return all packages for which <code>containsPackage</code> holds
+     */
+    public Set<String> packages(String extension) {
+        Map<String, SortedMap<String, Node>> map = packageIndex.get(extension);
+        return map == null ? Set.of() : Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Direct lookup of the entries of a package whose name does not contain a '$', typically the primary types.
+     *
+     * @return the first source file of each entry, with its path set to the path of the entry, sorted by name
+     */
+    public List<SourceFile> primaryEntriesInPackage(String packageName, String extension) {
+        Map<String, SortedMap<String, Node>> map = packageIndex.get(extension);
+        if (map == null) return List.of();
+        SortedMap<String, Node> entries = map.get(packageName);
+        if (entries == null) return List.of();
+        List<SourceFile> result = new ArrayList<>(entries.size());
+        for (Node node : entries.values()) {
+            result.add(node.named());
+        }
+        return result;
+    }
+
+    /**
+     * Equivalent to <code>get(path).getFirst()</code>, without the intermediate list.
+     */
+    public SourceFile getFirst(String[] path) {
+        Node node = goTo(path);
+        if (node == null || node.origins == null) return null;
+        return node.origin(0).sourceFile(path);
+    }
+
+    private static List<SourceFile> sourceFiles(Node node, String[] path) {
+        int n = node.size();
+        if (n == 1) return List.of(node.origin(0).sourceFile(path));
+        List<SourceFile> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(node.origin(i).sourceFile(path));
+        }
+        return list;
+    }
+
+    /**
+     * Visit all entries below the prefix; the visitor receives the path relative to the prefix.
+     */
+    public void visit(String[] prefix, BiConsumer<String[], List<SourceFile>> visitor) {
+        Node node = goTo(prefix);
+        if (node == null) return;
+        recursivelyVisit(node, prefix, new ArrayList<>(), visitor);
+    }
+
+    private static void recursivelyVisit(Node node,
+                                         String[] prefix,
+                                         List<String> relative,
+                                         BiConsumer<String[], List<SourceFile>> visitor) {
+        if (node.origins != null) {
+            String[] relativePath = relative.toArray(String[]::new);
+            visitor.accept(relativePath, sourceFiles(node, concat(prefix, relativePath)));
+        }
+        for (int i = 0; i < node.names.length; i++) {
+            relative.add(node.names[i]);
+            recursivelyVisit(node.children[i], prefix, relative, visitor);
+            relative.removeLast();
+        }
+    }
+
+    /**
+     * Visit the direct children of the prefix that are leaves; the visitor receives a path of length 1.
+     */
+    public void visitLeaves(String[] prefix, BiConsumer<String[], List<SourceFile>> visitor) {
+        Node node = goTo(prefix);
+        if (node == null) return;
+        for (int i = 0; i < node.names.length; i++) {
+            Node child = node.children[i];
+            if (child.isLeaf() && child.origins != null) {
+                String[] relativePath = new String[]{node.names[i]};
+                visitor.accept(relativePath, sourceFiles(child, concat(prefix, relativePath)));
+            }
+        }
+    }
+
+    private static String[] concat(String[] prefix, String[] relative) {
+        if (prefix.length == 0) return relative;
+        String[] result = Arrays.copyOf(prefix, prefix.length + relative.length);
+        System.arraycopy(relative, 0, result, prefix.length, relative.length);
+        return result;
+    }
+}